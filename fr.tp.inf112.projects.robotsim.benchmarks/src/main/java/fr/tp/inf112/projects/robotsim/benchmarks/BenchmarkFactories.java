@@ -0,0 +1,49 @@
+package fr.tp.inf112.projects.robotsim.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryGenerator;
+import fr.tp.inf112.projects.robotsim.model.Machine;
+
+/**
+ * Factories of the benchmarks, generated with a fixed seed so that all runs
+ * measure the same factories: one room holding one machine per 100 x 100 tile
+ * of the factory, all doors open, and robots in the corridors.
+ */
+final class BenchmarkFactories {
+
+    private static final long SEED = 42;
+
+    private static final int TILE_SIZE = 100;
+
+    private BenchmarkFactories() {
+    }
+
+    static Factory newFactory(int size, int robotCount) {
+        int roomCount = Math.max(size / TILE_SIZE, 1) * Math.max(size / TILE_SIZE, 1);
+        FactoryGenerator generator = new FactoryGenerator(SEED);
+        generator.setDimensions(size, size);
+        generator.setRoomCount(roomCount);
+        generator.setOpenDoorRatio(1);
+        generator.setAreasPerRoom(1);
+        generator.setMachineCount(roomCount);
+        generator.setChargingStationCount(0);
+        generator.setRobotCount(robotCount);
+        return generator.generate();
+    }
+
+    static List<Machine> getMachines(Factory factory) {
+        List<Machine> machines = new ArrayList<>();
+
+        for (Component component : factory.getComponents()) {
+            if (component instanceof Machine) {
+                machines.add((Machine) component);
+            }
+        }
+
+        return machines;
+    }
+}
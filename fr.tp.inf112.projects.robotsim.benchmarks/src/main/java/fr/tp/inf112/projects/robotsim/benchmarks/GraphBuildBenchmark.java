@@ -0,0 +1,86 @@
+package fr.tp.inf112.projects.robotsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.path.AbstractFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.CustomDijkstraFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.JGraphTDijkstraFactoryPathFinder;
+
+/**
+ * {@link AbstractFactoryPathFinder#buildGraph} of the path finders searching an
+ * explicit graph, built from scratch at each invocation. The occupancy grid of
+ * the factory being cached by the factory, it is only computed during warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBuildBenchmark {
+
+    @Param({ "200", "1000", "3000" })
+    public int size;
+
+    @Param({ "5", "10" })
+    public int resolution;
+
+    private Factory factory;
+
+    @Setup
+    public void setUp() {
+        factory = BenchmarkFactories.newFactory(size, 0);
+    }
+
+    @Benchmark
+    public Object jgraphtDijkstra() {
+        return new JGraphTGraphBuilder(factory, resolution).build();
+    }
+
+    @Benchmark
+    public Object customDijkstra() {
+        return new CustomGraphBuilder(factory, resolution).build();
+    }
+
+    // buildGraph and getGraph being protected, the builders are subclasses of the path finders
+    private static final class JGraphTGraphBuilder extends JGraphTDijkstraFactoryPathFinder {
+
+        private static final long serialVersionUID = 1L;
+
+        private JGraphTGraphBuilder(Factory factory, int resolution) {
+            super(factory, resolution);
+        }
+
+        private Object build() {
+            buildGraph();
+            return getGraph();
+        }
+    }
+
+    private static final class CustomGraphBuilder extends CustomDijkstraFactoryPathFinder {
+
+        private static final long serialVersionUID = 1L;
+
+        private CustomGraphBuilder(Factory factory, int resolution) {
+            super(factory, resolution);
+        }
+
+        private Object build() {
+            buildGraph();
+            return getGraph();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package fr.tp.inf112.projects.robotsim.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+
+/**
+ * {@link Factory#moveComponent} called concurrently by several threads, each
+ * moving its own robot back and forth along a corridor, as the robots of a
+ * simulation do. The number of threads is set with the -t option of JMH.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MoveComponentBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedFactory {
+
+        @Param({ "1000" })
+        public int size;
+
+        @Param({ "100", "1000" })
+        public int robotCount;
+
+        private Factory factory;
+
+        private List<Robot> robots;
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            factory = BenchmarkFactories.newFactory(size, robotCount);
+            robots = factory.getRobots();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MovingRobot {
+
+        private Robot robot;
+
+        private int startX;
+
+        private boolean forward;
+
+        @Setup
+        public void setUp(SharedFactory sharedFactory) {
+            int index = sharedFactory.threadCount.getAndIncrement();
+            robot = sharedFactory.robots.get(index % sharedFactory.robots.size());
+            startX = robot.getxCoordinate();
+        }
+    }
+
+    @Benchmark
+    public int moveComponent(SharedFactory sharedFactory, MovingRobot movingRobot) {
+        Robot robot = movingRobot.robot;
+        movingRobot.forward = !movingRobot.forward;
+        Position target = new Position(movingRobot.startX + (movingRobot.forward ? 1 : 0), robot.getyCoordinate());
+        return sharedFactory.factory.moveComponent(new Motion(robot.getPosition(), target), robot);
+    }
+}
@@ -0,0 +1,63 @@
+package fr.tp.inf112.projects.robotsim.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * {@link Factory#hasObstacleAt} for the 2 x 2 squares robots move to, at random
+ * places of the factory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObstacleBenchmark {
+
+    private static final int PROBE_COUNT = 1024;
+
+    @Param({ "200", "1000", "3000" })
+    public int size;
+
+    @Param({ "2", "100" })
+    public int robotCount;
+
+    private Factory factory;
+
+    private RectangularShape[] probes;
+
+    private int probeIndex;
+
+    @Setup
+    public void setUp() {
+        factory = BenchmarkFactories.newFactory(size, robotCount);
+        Random random = new Random(42);
+        probes = new RectangularShape[PROBE_COUNT];
+
+        for (int index = 0; index < PROBE_COUNT; index++) {
+            probes[index] = new RectangularShape(random.nextInt(size - 2), random.nextInt(size - 2), 2, 2);
+        }
+    }
+
+    @Benchmark
+    public boolean hasObstacleAt() {
+        probeIndex = (probeIndex + 1) % PROBE_COUNT;
+        return factory.hasObstacleAt(probes[probeIndex]);
+    }
+}
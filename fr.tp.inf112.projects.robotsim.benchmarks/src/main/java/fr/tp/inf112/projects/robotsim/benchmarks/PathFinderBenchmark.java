@@ -0,0 +1,72 @@
+package fr.tp.inf112.projects.robotsim.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Machine;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.PathFinderKind;
+
+/**
+ * {@link FactoryPathFinder#findPath} from robots in the corridors to machines in
+ * the rooms, in a topology that does not change so that the graphs are only
+ * built during warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathFinderBenchmark {
+
+    private static final int ROBOT_COUNT = 16;
+
+    @Param({ "200", "1000" })
+    public int size;
+
+    @Param({ "5", "10" })
+    public int resolution;
+
+    @Param
+    public PathFinderKind pathFinderKind;
+
+    private FactoryPathFinder pathFinder;
+
+    private List<Robot> robots;
+
+    private List<Machine> machines;
+
+    private int searchIndex;
+
+    @Setup
+    public void setUp() {
+        Factory factory = BenchmarkFactories.newFactory(size, ROBOT_COUNT);
+        pathFinder = pathFinderKind.create(factory, resolution);
+        robots = factory.getRobots();
+        machines = BenchmarkFactories.getMachines(factory);
+    }
+
+    @Benchmark
+    public List<Position> findPath() {
+        searchIndex++;
+        Robot robot = robots.get(searchIndex % robots.size());
+        Machine machine = machines.get((searchIndex / robots.size()) % machines.size());
+        return pathFinder.findPath(robot, machine);
+    }
+}
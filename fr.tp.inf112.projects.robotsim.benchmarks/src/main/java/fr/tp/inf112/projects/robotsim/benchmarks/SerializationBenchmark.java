@@ -0,0 +1,69 @@
+package fr.tp.inf112.projects.robotsim.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+
+/**
+ * Round-trips of a factory through the typed JSON of the persistence server and
+ * the remote simulation, and through the object streams of the
+ * FactoryPersistenceManager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "200", "1000" })
+    public int size;
+
+    @Param({ "2", "100" })
+    public int robotCount;
+
+    private Factory factory;
+
+    @Setup
+    public void setUp() {
+        factory = BenchmarkFactories.newFactory(size, robotCount);
+    }
+
+    @Benchmark
+    public Factory jacksonRoundTrip() throws IOException {
+        byte[] json = FactoryJson.getTypedWriter().writeValueAsBytes(factory);
+        return FactoryJson.getTypedReader().readValue(json);
+    }
+
+    @Benchmark
+    public Factory objectStreamRoundTrip() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(factory);
+        }
+
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Factory) input.readObject();
+        }
+    }
+}
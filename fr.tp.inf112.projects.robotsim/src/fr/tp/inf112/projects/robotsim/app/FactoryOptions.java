@@ -0,0 +1,101 @@
+package fr.tp.inf112.projects.robotsim.app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryGenerator;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+import fr.tp.inf112.projects.robotsim.model.FactoryPersistenceManager;
+
+/**
+ * The command line options of the simulation runners choosing the simulated
+ * factory: a factory file, read as JSON if its name ends with .json or as saved
+ * by the {@link FactoryPersistenceManager} otherwise, or a factory generated by
+ * a {@link FactoryGenerator}.
+ */
+final class FactoryOptions {
+
+    static final String USAGE = "(<factory file> | --generate SEED [--size N] [--rooms N] [--robots N] [--stations N])";
+
+    private String factoryFile;
+
+    private Long seed;
+
+    private int size = 1000;
+
+    private int roomCount = 9;
+
+    private int robotCount = 20;
+
+    private int chargingStationCount = 2;
+
+    void setFactoryFile(String factoryFile) {
+        this.factoryFile = factoryFile;
+    }
+
+    /**
+     * @return true if the option is one of the generation options, false if
+     * the runner should handle it.
+     */
+    boolean parse(String option, String value) {
+        switch (option) {
+            case "--generate":
+                seed = Long.parseLong(value);
+                return true;
+            case "--size":
+                size = parseCount(option, value);
+                return true;
+            case "--rooms":
+                roomCount = parseCount(option, value);
+                return true;
+            case "--robots":
+                robotCount = parseCount(option, value);
+                return true;
+            case "--stations":
+                chargingStationCount = parseCount(option, value);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void validate() {
+        if ((factoryFile == null) == (seed == null)) {
+            throw new IllegalArgumentException("Either a factory file or a generation seed is expected.");
+        }
+    }
+
+    Factory loadFactory() throws IOException {
+        if (seed != null) {
+            FactoryGenerator generator = new FactoryGenerator(seed);
+            generator.setDimensions(size, size);
+            generator.setRoomCount(roomCount);
+            generator.setMachineCount(roomCount * 2);
+            generator.setChargingStationCount(chargingStationCount);
+            generator.setRobotCount(robotCount);
+            return generator.generate();
+        }
+
+        if (factoryFile.endsWith(".json")) {
+            return FactoryJson.getTypedReader().readValue(Files.readAllBytes(Paths.get(factoryFile)));
+        }
+
+        return (Factory) new FactoryPersistenceManager().read(factoryFile);
+    }
+
+    static int parseCount(String option, String value) {
+        try {
+            int count = Integer.parseInt(value.trim());
+
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+
+        throw new IllegalArgumentException("Invalid value of " + option + ": " + value);
+    }
+}
@@ -0,0 +1,341 @@
+package fr.tp.inf112.projects.robotsim.app;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryGenerator;
+import fr.tp.inf112.projects.robotsim.model.FactoryPersistenceManager;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.path.AStarFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.CachingFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.CountingFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.simulation.ParallelTickSimulationEngine;
+import fr.tp.inf112.projects.robotsim.model.simulation.TickSimulationEngine;
+
+/**
+ * Runs the simulation of a factory for a number of ticks, back to back in the
+ * calling thread and without any observer, then reports the tick and path
+ * search rates, the blocked robots and the allocation rate. The factory is read
+ * from a file, as JSON if its name ends with .json or as saved by the
+ * {@link FactoryPersistenceManager} otherwise, or generated by a
+ * {@link FactoryGenerator}.
+ */
+public class HeadlessSimulationRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(HeadlessSimulationRunner.class.getName());
+
+    private static final String USAGE =
+            "Usage: HeadlessSimulationRunner [--ticks N] [--warmup N] [--engine tick|parallel]\n" +
+            "           " + FactoryOptions.USAGE;
+
+    private final Factory factory;
+
+    private final TickSimulationEngine engine;
+
+    private final List<Robot> robots = new ArrayList<>();
+
+    private final List<CountingFactoryPathFinder> pathFinders = new ArrayList<>();
+
+    public HeadlessSimulationRunner(Factory factory, TickSimulationEngine engine) {
+        this.factory = factory;
+        this.engine = engine;
+        factory.initialize();
+        countPathSearches();
+    }
+
+    // Wraps the path finders of the robots, keeping a path finder shared by several robots shared
+    private void countPathSearches() {
+        Map<FactoryPathFinder, CountingFactoryPathFinder> countingPathFinders = new IdentityHashMap<>();
+        FactoryPathFinder defaultPathFinder = null;
+        int robotsWithoutTargets = 0;
+
+        for (Robot robot : factory.getRobots()) {
+            FactoryPathFinder pathFinder = robot.getPathFinder();
+
+            // Path finders are not saved in JSON
+            if (pathFinder == null) {
+                if (defaultPathFinder == null) {
+                    defaultPathFinder = new CachingFactoryPathFinder(new AStarFactoryPathFinder(factory, 5), factory, 5);
+                }
+
+                pathFinder = defaultPathFinder;
+            }
+
+            CountingFactoryPathFinder countingPathFinder = countingPathFinders.get(pathFinder);
+
+            if (countingPathFinder == null) {
+                countingPathFinder = new CountingFactoryPathFinder(pathFinder);
+                countingPathFinders.put(pathFinder, countingPathFinder);
+                pathFinders.add(countingPathFinder);
+            }
+
+            robot.setPathFinder(countingPathFinder);
+            robots.add(robot);
+
+            if (!robot.hasTargetComponents()) {
+                robotsWithoutTargets++;
+            }
+        }
+
+        if (robotsWithoutTargets > 0) {
+            LOGGER.warning(robotsWithoutTargets + " robots have no target and will not move.");
+        }
+    }
+
+    public Report run(int warmupTicks, int ticks) {
+        for (int tick = 0; tick < warmupTicks; tick++) {
+            engine.tick(factory);
+        }
+
+        long startSearchCount = getSearchCount();
+        long startAllocatedBytes = getAllocatedBytes(isParallel());
+        long startTime = System.nanoTime();
+        long blockedRobotTicks = 0;
+        int maxBlockedRobots = 0;
+        int blockedRobots = 0;
+
+        for (int tick = 0; tick < ticks; tick++) {
+            engine.tick(factory);
+            blockedRobots = countBlockedRobots();
+            blockedRobotTicks += blockedRobots;
+            maxBlockedRobots = Math.max(maxBlockedRobots, blockedRobots);
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        return new Report(ticks, robots.size(), elapsedNanos, getSearchCount() - startSearchCount,
+                          blockedRobots, (double) blockedRobotTicks / Math.max(ticks, 1), maxBlockedRobots,
+                          getAllocatedBytes(isParallel()) - startAllocatedBytes);
+    }
+
+    // The calling thread does not allocate for the planning threads of the parallel engine
+    private boolean isParallel() {
+        return engine instanceof ParallelTickSimulationEngine;
+    }
+
+    private long getSearchCount() {
+        long searchCount = 0;
+
+        for (CountingFactoryPathFinder pathFinder : pathFinders) {
+            searchCount += pathFinder.getSearchCount();
+        }
+
+        return searchCount;
+    }
+
+    private int countBlockedRobots() {
+        int blockedRobots = 0;
+
+        for (Robot robot : robots) {
+            if (robot.isBlocked()) {
+                blockedRobots++;
+            }
+        }
+
+        return blockedRobots;
+    }
+
+    /**
+     * @return the bytes allocated so far by the calling thread, or by all the
+     * live threads to include those planning the motions of the parallel engine,
+     * or -1 if the virtual machine does not measure it.
+     */
+    private static long getAllocatedBytes(boolean allThreads) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        if (!allThreads) {
+            return threadBean.getCurrentThreadAllocatedBytes();
+        }
+
+        long allocatedBytes = 0;
+
+        for (long threadAllocatedBytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (threadAllocatedBytes > 0) {
+                allocatedBytes += threadAllocatedBytes;
+            }
+        }
+
+        return allocatedBytes;
+    }
+
+    public static final class Report {
+
+        private final int ticks;
+
+        private final int robotCount;
+
+        private final long elapsedNanos;
+
+        private final long pathSearches;
+
+        private final int blockedRobots;
+
+        private final double meanBlockedRobots;
+
+        private final int maxBlockedRobots;
+
+        private final long allocatedBytes;
+
+        private Report(int ticks, int robotCount, long elapsedNanos, long pathSearches, int blockedRobots,
+                       double meanBlockedRobots, int maxBlockedRobots, long allocatedBytes) {
+            this.ticks = ticks;
+            this.robotCount = robotCount;
+            this.elapsedNanos = elapsedNanos;
+            this.pathSearches = pathSearches;
+            this.blockedRobots = blockedRobots;
+            this.meanBlockedRobots = meanBlockedRobots;
+            this.maxBlockedRobots = maxBlockedRobots;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public int getTicks() {
+            return ticks;
+        }
+
+        public int getRobotCount() {
+            return robotCount;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getTicksPerSecond() {
+            return ticks / getElapsedSeconds();
+        }
+
+        public long getPathSearches() {
+            return pathSearches;
+        }
+
+        public double getPathSearchesPerSecond() {
+            return pathSearches / getElapsedSeconds();
+        }
+
+        /**
+         * @return the robots blocked after the last tick.
+         */
+        public int getBlockedRobots() {
+            return blockedRobots;
+        }
+
+        public double getMeanBlockedRobots() {
+            return meanBlockedRobots;
+        }
+
+        public int getMaxBlockedRobots() {
+            return maxBlockedRobots;
+        }
+
+        /**
+         * @return the allocated bytes, or -1 if not measured.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public double getAllocationRate() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes / getElapsedSeconds();
+        }
+
+        public void print(PrintStream output) {
+            output.printf(Locale.ROOT, "ticks: %d%n", ticks);
+            output.printf(Locale.ROOT, "robots: %d%n", robotCount);
+            output.printf(Locale.ROOT, "elapsed time: %.3f s%n", getElapsedSeconds());
+            output.printf(Locale.ROOT, "ticks per second: %.1f%n", getTicksPerSecond());
+            output.printf(Locale.ROOT, "path searches: %d (%.1f per second)%n", pathSearches, getPathSearchesPerSecond());
+            output.printf(Locale.ROOT, "blocked robots: %d at the end, %.1f on average, %d at most%n",
+                          blockedRobots, meanBlockedRobots, maxBlockedRobots);
+
+            if (allocatedBytes >= 0) {
+                output.printf(Locale.ROOT, "allocation rate: %.1f MB/s (%.1f kB per tick)%n",
+                              getAllocationRate() / 1e6, allocatedBytes / 1e3 / Math.max(ticks, 1));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            Arguments arguments = new Arguments(args);
+            Factory factory = arguments.factoryOptions.loadFactory();
+            TickSimulationEngine engine = "parallel".equals(arguments.engine)
+                    ? new ParallelTickSimulationEngine(TickSimulationEngine.AS_FAST_AS_POSSIBLE)
+                    : new TickSimulationEngine(TickSimulationEngine.AS_FAST_AS_POSSIBLE);
+            LOGGER.info("Running " + arguments.ticks + " ticks of " + factory.getName() + "...");
+            new HeadlessSimulationRunner(factory, engine).run(arguments.warmupTicks, arguments.ticks).print(System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Failed to read the factory: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static final class Arguments {
+
+        private int ticks = 1000;
+
+        private int warmupTicks = 0;
+
+        private String engine = "tick";
+
+        private final FactoryOptions factoryOptions = new FactoryOptions();
+
+        private Arguments(String[] args) {
+            for (int index = 0; index < args.length; index++) {
+                String arg = args[index];
+
+                if (!arg.startsWith("--")) {
+                    factoryOptions.setFactoryFile(arg);
+                    continue;
+                }
+
+                if (index + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of " + arg);
+                }
+
+                String value = args[++index];
+
+                switch (arg) {
+                    case "--ticks":
+                        ticks = FactoryOptions.parseCount(arg, value);
+                        break;
+                    case "--warmup":
+                        warmupTicks = FactoryOptions.parseCount(arg, value);
+                        break;
+                    case "--engine":
+                        if (!"tick".equals(value) && !"parallel".equals(value)) {
+                            throw new IllegalArgumentException("Unknown engine: " + value);
+                        }
+                        engine = value;
+                        break;
+                    default:
+                        if (!factoryOptions.parse(arg, value)) {
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        }
+                }
+            }
+
+            factoryOptions.validate();
+        }
+    }
+}
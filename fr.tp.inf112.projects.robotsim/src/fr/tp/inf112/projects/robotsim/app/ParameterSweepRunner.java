@@ -0,0 +1,423 @@
+package fr.tp.inf112.projects.robotsim.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.path.CachingFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.PathFinderKind;
+import fr.tp.inf112.projects.robotsim.model.simulation.TickSimulationEngine;
+
+/**
+ * Runs variants of a base factory, with fewer robots, other robot speeds or
+ * other path finders, concurrently on a work-stealing pool and reports summary
+ * statistics of the {@link HeadlessSimulationRunner} reports of each variant.
+ * Each run simulates its own copy of the base factory, deserialized from the
+ * same bytes, in a single thread so that the runs share no model state.
+ */
+public class ParameterSweepRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(ParameterSweepRunner.class.getName());
+
+    private static final String USAGE =
+            "Usage: ParameterSweepRunner [--ticks N] [--warmup N] [--repetitions N] [--parallelism N]\n" +
+            "           [--robot-counts N,...] [--speeds N,...] [--path-finders KIND,...] [--resolution N]\n" +
+            "           " + FactoryOptions.USAGE;
+
+    private final byte[] baseFactory;
+
+    private final int baseRobotCount;
+
+    public ParameterSweepRunner(Factory baseFactory) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(baseFactory);
+        }
+
+        this.baseFactory = bytes.toByteArray();
+        baseRobotCount = baseFactory.getRobots().size();
+    }
+
+    public int getBaseRobotCount() {
+        return baseRobotCount;
+    }
+
+    /**
+     * Runs each variant the given number of times, at most parallelism runs at
+     * a time. A failed run does not stop the sweep but is reported in the
+     * result of its variant.
+     */
+    public List<Result> run(List<Variant> variants, int repetitions, int warmupTicks, int ticks, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            List<List<ForkJoinTask<HeadlessSimulationRunner.Report>>> runs = new ArrayList<>();
+
+            for (Variant variant : variants) {
+                List<ForkJoinTask<HeadlessSimulationRunner.Report>> variantRuns = new ArrayList<>();
+
+                for (int repetition = 0; repetition < repetitions; repetition++) {
+                    variantRuns.add(pool.submit(() -> runVariant(variant, warmupTicks, ticks)));
+                }
+
+                runs.add(variantRuns);
+            }
+
+            List<Result> results = new ArrayList<>();
+
+            for (int index = 0; index < variants.size(); index++) {
+                Variant variant = variants.get(index);
+                List<HeadlessSimulationRunner.Report> reports = new ArrayList<>();
+                Throwable failure = null;
+
+                for (ForkJoinTask<HeadlessSimulationRunner.Report> run : runs.get(index)) {
+                    try {
+                        reports.add(run.get());
+                    } catch (ExecutionException e) {
+                        LOGGER.log(Level.WARNING, "Failed to run " + variant + ".", e.getCause());
+                        failure = e.getCause();
+                    }
+                }
+
+                results.add(new Result(variant, reports, failure));
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the variants.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private HeadlessSimulationRunner.Report runVariant(Variant variant, int warmupTicks, int ticks) throws IOException, ClassNotFoundException {
+        Factory factory = newFactory(variant);
+
+        return new HeadlessSimulationRunner(factory, new TickSimulationEngine(TickSimulationEngine.AS_FAST_AS_POSSIBLE))
+                .run(warmupTicks, ticks);
+    }
+
+    private Factory newFactory(Variant variant) throws IOException, ClassNotFoundException {
+        Factory factory;
+
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(baseFactory))) {
+            factory = (Factory) input.readObject();
+        }
+
+        List<Robot> robots = factory.getRobots();
+
+        if (variant.getRobotCount() > robots.size()) {
+            throw new IllegalArgumentException("The base factory has only " + robots.size() + " robots.");
+        }
+
+        // Keeps the first robots so that the variants with fewer robots run a subset of the same robots
+        for (Robot robot : robots.subList(variant.getRobotCount(), robots.size())) {
+            factory.removeComponent(robot);
+        }
+
+        // One path finder shared by the robots, like the factories built by the applications
+        FactoryPathFinder pathFinder = variant.getPathFinderKind() == null
+                ? null
+                : new CachingFactoryPathFinder(variant.getPathFinderKind().create(factory, variant.getResolution()),
+                                               factory, variant.getResolution());
+
+        for (Robot robot : robots.subList(0, variant.getRobotCount())) {
+            if (variant.getSpeed() > 0) {
+                robot.setSpeed(variant.getSpeed());
+            }
+
+            if (pathFinder != null) {
+                robot.setPathFinder(pathFinder);
+            }
+        }
+
+        return factory;
+    }
+
+    /**
+     * The parameters of a variant of the base factory.
+     */
+    public static final class Variant {
+
+        private final int robotCount;
+
+        private final int speed;
+
+        private final PathFinderKind pathFinderKind;
+
+        private final int resolution;
+
+        /**
+         * @param speed the speed of the robots, or 0 to keep their speeds.
+         * @param pathFinderKind the path finder of the robots, or null to keep
+         * their path finders.
+         */
+        public Variant(int robotCount, int speed, PathFinderKind pathFinderKind, int resolution) {
+            this.robotCount = robotCount;
+            this.speed = speed;
+            this.pathFinderKind = pathFinderKind;
+            this.resolution = resolution;
+        }
+
+        public int getRobotCount() {
+            return robotCount;
+        }
+
+        public int getSpeed() {
+            return speed;
+        }
+
+        public PathFinderKind getPathFinderKind() {
+            return pathFinderKind;
+        }
+
+        public int getResolution() {
+            return resolution;
+        }
+
+        @Override
+        public String toString() {
+            return "variant [robots=" + robotCount + ", speed=" + (speed > 0 ? speed : "base") +
+                   ", path finder=" + (pathFinderKind == null ? "base" : pathFinderKind) + "]";
+        }
+    }
+
+    public static final class Result {
+
+        private final Variant variant;
+
+        private final List<HeadlessSimulationRunner.Report> reports;
+
+        private final Throwable failure;
+
+        private Result(Variant variant, List<HeadlessSimulationRunner.Report> reports, Throwable failure) {
+            this.variant = variant;
+            this.reports = reports;
+            this.failure = failure;
+        }
+
+        public Variant getVariant() {
+            return variant;
+        }
+
+        public List<HeadlessSimulationRunner.Report> getReports() {
+            return reports;
+        }
+
+        /**
+         * @return the failure of the last failed run of the variant, or null if
+         * all the runs succeeded.
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public double getMinTicksPerSecond() {
+            return reports.stream().mapToDouble(HeadlessSimulationRunner.Report::getTicksPerSecond).min().orElse(Double.NaN);
+        }
+
+        public double getMeanTicksPerSecond() {
+            return reports.stream().mapToDouble(HeadlessSimulationRunner.Report::getTicksPerSecond).average().orElse(Double.NaN);
+        }
+
+        public double getMaxTicksPerSecond() {
+            return reports.stream().mapToDouble(HeadlessSimulationRunner.Report::getTicksPerSecond).max().orElse(Double.NaN);
+        }
+
+        public double getMeanPathSearchesPerSecond() {
+            return reports.stream().mapToDouble(HeadlessSimulationRunner.Report::getPathSearchesPerSecond).average().orElse(Double.NaN);
+        }
+
+        public double getMeanBlockedRobots() {
+            return reports.stream().mapToDouble(HeadlessSimulationRunner.Report::getMeanBlockedRobots).average().orElse(Double.NaN);
+        }
+
+        /**
+         * @return the mean allocation rate, or -1 if not measured.
+         */
+        public double getMeanAllocationRate() {
+            return reports.stream().mapToDouble(HeadlessSimulationRunner.Report::getAllocationRate).average().orElse(-1);
+        }
+    }
+
+    public static void printCsv(List<Result> results, PrintStream output) {
+        output.println("robots,speed,path finder,runs,failed,min ticks/s,mean ticks/s,max ticks/s," +
+                       "path searches/s,mean blocked robots,allocation MB/s");
+
+        for (Result result : results) {
+            Variant variant = result.getVariant();
+            output.printf(Locale.ROOT, "%d,%s,%s,%d,%s,%.1f,%.1f,%.1f,%.1f,%.2f,%.1f%n",
+                          variant.getRobotCount(),
+                          variant.getSpeed() > 0 ? String.valueOf(variant.getSpeed()) : "base",
+                          variant.getPathFinderKind() == null ? "base" : variant.getPathFinderKind(),
+                          result.getReports().size(),
+                          result.getFailure() == null ? "no" : "yes",
+                          result.getMinTicksPerSecond(),
+                          result.getMeanTicksPerSecond(),
+                          result.getMaxTicksPerSecond(),
+                          result.getMeanPathSearchesPerSecond(),
+                          result.getMeanBlockedRobots(),
+                          result.getMeanAllocationRate() < 0 ? -1 : result.getMeanAllocationRate() / 1e6);
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            Arguments arguments = new Arguments(args);
+            ParameterSweepRunner runner = new ParameterSweepRunner(arguments.factoryOptions.loadFactory());
+            List<Variant> variants = arguments.getVariants(runner.getBaseRobotCount());
+            LOGGER.info("Running " + variants.size() + " variants " + arguments.repetitions + " times on " +
+                        arguments.parallelism + " threads...");
+            printCsv(runner.run(variants, arguments.repetitions, arguments.warmupTicks, arguments.ticks,
+                                arguments.parallelism), System.out);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Failed to read the factory: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static final class Arguments {
+
+        private int ticks = 1000;
+
+        private int warmupTicks = 0;
+
+        private int repetitions = 1;
+
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private List<Integer> robotCounts;
+
+        private List<Integer> speeds;
+
+        private List<PathFinderKind> pathFinderKinds;
+
+        private int resolution = 5;
+
+        private final FactoryOptions factoryOptions = new FactoryOptions();
+
+        private Arguments(String[] args) {
+            for (int index = 0; index < args.length; index++) {
+                String arg = args[index];
+
+                if (!arg.startsWith("--")) {
+                    factoryOptions.setFactoryFile(arg);
+                    continue;
+                }
+
+                if (index + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of " + arg);
+                }
+
+                String value = args[++index];
+
+                switch (arg) {
+                    case "--ticks":
+                        ticks = FactoryOptions.parseCount(arg, value);
+                        break;
+                    case "--warmup":
+                        warmupTicks = FactoryOptions.parseCount(arg, value);
+                        break;
+                    case "--repetitions":
+                        repetitions = parsePositiveCount(arg, value);
+                        break;
+                    case "--parallelism":
+                        parallelism = parsePositiveCount(arg, value);
+                        break;
+                    case "--robot-counts":
+                        robotCounts = new ArrayList<>();
+                        for (String robotCount : value.split(",")) {
+                            robotCounts.add(FactoryOptions.parseCount(arg, robotCount));
+                        }
+                        break;
+                    case "--speeds":
+                        speeds = new ArrayList<>();
+                        for (String speed : value.split(",")) {
+                            speeds.add(parsePositiveCount(arg, speed));
+                        }
+                        break;
+                    case "--path-finders":
+                        pathFinderKinds = new ArrayList<>();
+                        for (String pathFinderKind : value.split(",")) {
+                            try {
+                                pathFinderKinds.add(PathFinderKind.valueOf(pathFinderKind.toUpperCase(Locale.ROOT)));
+                            } catch (IllegalArgumentException e) {
+                                throw new IllegalArgumentException("Unknown path finder: " + pathFinderKind);
+                            }
+                        }
+                        break;
+                    case "--resolution":
+                        resolution = parsePositiveCount(arg, value);
+                        break;
+                    default:
+                        if (!factoryOptions.parse(arg, value)) {
+                            throw new IllegalArgumentException("Unknown option: " + arg);
+                        }
+                }
+            }
+
+            factoryOptions.validate();
+        }
+
+        private static int parsePositiveCount(String option, String value) {
+            int count = FactoryOptions.parseCount(option, value);
+
+            if (count == 0) {
+                throw new IllegalArgumentException("Invalid value of " + option + ": " + value);
+            }
+
+            return count;
+        }
+
+        // The cartesian product of the parameters, the base factory values standing for the missing ones
+        private List<Variant> getVariants(int baseRobotCount) {
+            List<Integer> variantRobotCounts = robotCounts == null ? List.of(baseRobotCount) : robotCounts;
+            List<Integer> variantSpeeds = speeds == null ? List.of(0) : speeds;
+            List<PathFinderKind> variantPathFinderKinds = new ArrayList<>();
+
+            if (pathFinderKinds == null) {
+                variantPathFinderKinds.add(null);
+            } else {
+                variantPathFinderKinds.addAll(pathFinderKinds);
+            }
+
+            for (int variantRobotCount : variantRobotCounts) {
+                if (variantRobotCount > baseRobotCount) {
+                    throw new IllegalArgumentException("The base factory has only " + baseRobotCount + " robots.");
+                }
+            }
+
+            List<Variant> variants = new ArrayList<>();
+
+            for (int variantRobotCount : variantRobotCounts) {
+                for (int speed : variantSpeeds) {
+                    for (PathFinderKind pathFinderKind : variantPathFinderKinds) {
+                        variants.add(new Variant(variantRobotCount, speed, pathFinderKind, resolution));
+                    }
+                }
+            }
+
+            return variants;
+        }
+    }
+}
@@ -6,14 +6,20 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import java.net.URISyntaxException;
 import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasPersistenceManager;
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdate;
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdateCodec;
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
 import fr.tp.inf112.projects.canvas.controller.Observer;
 
 
@@ -22,6 +28,7 @@ public class RemoteSimulatorController extends SimulatorController {
     private static final String SIMULATION_SERVER_URL = "http://localhost:8080/simulation";
     private final HttpClient httpClient;
     private final String factoryId;
+    private volatile Thread streamThread;
 
     public RemoteSimulatorController(String factoryId, CanvasPersistenceManager persistenceManager) {
         super(null, persistenceManager);
@@ -38,6 +45,7 @@ public class RemoteSimulatorController extends SimulatorController {
 
             if (response.statusCode() == 200 && Boolean.parseBoolean(response.body())) {
                 System.out.println("Simulation started successfully for factory ID: " + factoryId);
+                startStreaming();
             } else {
                 System.err.println("Failed to start simulation: " + response.body());
             }
@@ -63,32 +71,106 @@ public class RemoteSimulatorController extends SimulatorController {
         }
     }
 
+    @Override
+    public boolean isAnimationRunning() {
+        return streamThread != null;
+    }
+
+    private synchronized void startStreaming() {
+        if (streamThread == null) {
+            streamThread = new Thread(this::updateViewer, "Simulation stream of " + factoryId);
+            streamThread.setDaemon(true);
+            streamThread.start();
+        }
+    }
+
+    /**
+     * Follows the server-sent events of the simulation until the server ends the
+     * stream: the whole model is replaced on each snapshot event, and only the
+     * listed components are updated on the delta events. The stream is
+     * subscribed to again, to get a new snapshot, when a delta cannot be applied.
+     */
     private void updateViewer() {
         try {
-            while (isAnimationRunning()) {
-                URI uri = new URI(SIMULATION_SERVER_URL + "/retrieve/" + factoryId);
-                HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-                if (response.statusCode() == 200) {
-                    Factory remoteFactoryModel = new ObjectMapper().readValue(response.body(), Factory.class);
-                    setCanvas(remoteFactoryModel);
-                } else {
-                    System.err.println("Failed to retrieve factory model: " + response.body());
-                }
-                Thread.sleep(100); // Polling interval
+            while (followStream()) {
+                System.err.println("Resynchronizing factory model " + factoryId);
             }
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            streamThread = null;
         }
     }
 
+    // Returns true if the stream was left because the model must be resynchronized
+    private boolean followStream() throws Exception {
+        URI uri = new URI(SIMULATION_SERVER_URL + "/stream/" + factoryId + "?encoding=binary");
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "text/event-stream").GET().build();
+        HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+
+        if (response.statusCode() != 200) {
+            System.err.println("Failed to stream factory model: HTTP " + response.statusCode());
+            return false;
+        }
+
+        try (Stream<String> lines = response.body()) {
+            ObjectReader factoryReader = FactoryJson.getTypedReader();
+            Iterator<String> lineIterator = lines.iterator();
+            boolean snapshotReceived = false;
+            String eventName = null;
+            StringBuilder eventData = new StringBuilder();
+
+            while (lineIterator.hasNext()) {
+                String line = lineIterator.next();
+
+                if (line.isEmpty()) {
+                    if ("snapshot".equals(eventName)) {
+                        Factory remoteFactoryModel = factoryReader.readValue(eventData.toString());
+                        remoteFactoryModel.initialize();
+                        setCanvas(remoteFactoryModel);
+                        snapshotReceived = true;
+                    } else if ("delta".equals(eventName) && snapshotReceived &&
+                               !applyUpdates(ComponentUpdateCodec.decode(Base64.getDecoder().decode(eventData.toString())))) {
+                        return true;
+                    }
+                    eventName = null;
+                    eventData.setLength(0);
+                } else if (line.startsWith("event:")) {
+                    eventName = line.substring("event:".length()).trim();
+                } else if (line.startsWith("data:")) {
+                    if (eventData.length() > 0) {
+                        eventData.append('\n');
+                    }
+                    String value = line.substring("data:".length());
+                    eventData.append(value.startsWith(" ") ? value.substring(1) : value);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean applyUpdates(List<ComponentUpdate> updates) {
+        Factory factoryModel = (Factory) getCanvas();
+
+        for (ComponentUpdate update : updates) {
+            if (!update.applyTo(factoryModel)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public void setCanvas(Canvas canvasModel) {
+        Factory previousFactoryModel = (Factory) getCanvas();
         super.setCanvas(canvasModel);
-        List<Observer> observers = ((Factory) getCanvas()).getObservers();
-        for (Observer observer : observers) {
-            ((Factory) getCanvas()).addObserver(observer);
+        if (previousFactoryModel != null && previousFactoryModel != canvasModel) {
+            List<Observer> observers = previousFactoryModel.getObservers();
+            for (Observer observer : observers) {
+                ((Factory) getCanvas()).addObserver(observer);
+            }
         }
         ((Factory) getCanvas()).notifyObservers();
     }
@@ -86,15 +86,14 @@ public class SimulatorApplication {
 
         LOGGER.info("Adding robots and pathfinders...");
 
-        // Robots and pathfinders
-        final FactoryPathFinder jgraphPathFinder = new JGraphTDijkstraFactoryPathFinder(factory, 5);
-        final Robot robot1 = new Robot(factory, jgraphPathFinder, new CircularShape(5, 5, 2), new Battery(10), "Robot 1");
+        // Robots and pathfinder, a single one being shared by all the robots of the factory
+        final FactoryPathFinder pathFinder = new CachingFactoryPathFinder(new AStarFactoryPathFinder(factory, 5), factory, 5);
+        final Robot robot1 = new Robot(factory, pathFinder, new CircularShape(5, 5, 2), new Battery(10), "Robot 1");
         robot1.addTargetComponent(machine1);
         robot1.addTargetComponent(machine2);
         robot1.addTargetComponent(chargingStation);
 
-        final FactoryPathFinder customPathFinder = new CustomDijkstraFactoryPathFinder(factory, 5);
-        final Robot robot2 = new Robot(factory, customPathFinder, new CircularShape(45, 5, 2), new Battery(10), "Robot 2");
+        final Robot robot2 = new Robot(factory, pathFinder, new CircularShape(45, 5, 2), new Battery(10), "Robot 2");
         robot2.addTargetComponent(machine1);
         robot2.addTargetComponent(machine2);
         robot2.addTargetComponent(chargingStation);
@@ -0,0 +1,190 @@
+package fr.tp.inf112.projects.robotsim.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.protocol.Frame;
+import fr.tp.inf112.projects.robotsim.protocol.FrameType;
+
+/**
+ * Pool of keep-alive connections to the persistence server. Requests are spread
+ * over the connections of the pool and written without waiting for the
+ * responses to the previous ones, each response being matched to its request
+ * by the request identifier. Connections are opened when first needed and
+ * replaced when they fail.
+ */
+public class FrameConnectionPool implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(FrameConnectionPool.class.getName());
+
+    public static final int DEFAULT_SIZE = 2;
+
+    private final String serverAddress;
+
+    private final int serverPort;
+
+    private final Connection[] connections;
+
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    public FrameConnectionPool(String serverAddress, int serverPort) {
+        this(serverAddress, serverPort, DEFAULT_SIZE);
+    }
+
+    public FrameConnectionPool(String serverAddress, int serverPort, int size) {
+        this.serverAddress = serverAddress;
+        this.serverPort = serverPort;
+        connections = new Connection[size];
+    }
+
+    /**
+     * Sends a request on one of the connections of the pool.
+     *
+     * @return the future response of the server, completed exceptionally if the
+     * connection fails before the response is received. Cancelling it, e.g. when
+     * no longer waiting for the response, forgets the request.
+     */
+    public CompletableFuture<Frame> send(FrameType requestType, byte[] payload) {
+        int requestId = requestIds.incrementAndGet();
+
+        try {
+            return getConnection(requestId).send(new Frame(requestId, requestType, payload));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized Connection getConnection(int requestId) throws IOException {
+        if (closed) {
+            throw new IOException("Connection pool closed.");
+        }
+
+        int index = Math.floorMod(requestId, connections.length);
+
+        if (connections[index] == null || connections[index].isBroken()) {
+            connections[index] = new Connection(new Socket(serverAddress, serverPort));
+        }
+
+        return connections[index];
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+
+        for (int index = 0; index < connections.length; index++) {
+            if (connections[index] != null) {
+                connections[index].close(new IOException("Connection pool closed."));
+                connections[index] = null;
+            }
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+
+        private final DataOutputStream output;
+
+        private final DataInputStream input;
+
+        private final Map<Integer, CompletableFuture<Frame>> pendingResponses = new ConcurrentHashMap<>();
+
+        private volatile IOException failure;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+            Thread readerThread = new Thread(this::readResponses, "Persistence connection " + socket.getLocalPort());
+            readerThread.setDaemon(true);
+            readerThread.start();
+        }
+
+        private boolean isBroken() {
+            return failure != null;
+        }
+
+        private CompletableFuture<Frame> send(Frame request) {
+            CompletableFuture<Frame> response = new CompletableFuture<>();
+            pendingResponses.put(request.getRequestId(), response);
+            // Also forgets the requests whose futures are cancelled by the callers
+            response.whenComplete((frame, e) -> pendingResponses.remove(request.getRequestId(), response));
+
+            try {
+                synchronized (output) {
+                    request.writeTo(output);
+                    output.flush();
+                }
+            } catch (IOException e) {
+                close(e);
+            }
+
+            // The connection may have failed before the response was registered
+            if (failure != null) {
+                failPendingResponses();
+            }
+
+            return response;
+        }
+
+        private void readResponses() {
+            try {
+                while (true) {
+                    Frame response = Frame.readFrom(input);
+                    CompletableFuture<Frame> pendingResponse = pendingResponses.remove(response.getRequestId());
+
+                    if (pendingResponse != null) {
+                        pendingResponse.complete(response);
+                    } else if (response.getType() == FrameType.ERROR) {
+                        // Not related to a request, such as a refused connection
+                        throw new IOException(response.getText());
+                    } else {
+                        LOGGER.warning("Ignoring unexpected response " + response);
+                    }
+                }
+            } catch (IOException e) {
+                close(e);
+            }
+        }
+
+        private void close(IOException cause) {
+            if (failure == null) {
+                failure = cause;
+                LOGGER.log(Level.FINE, "Closing persistence connection", cause);
+            }
+
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error closing persistence connection", e);
+            }
+
+            failPendingResponses();
+        }
+
+        private void failPendingResponses() {
+            for (Integer requestId : pendingResponses.keySet()) {
+                CompletableFuture<Frame> pendingResponse = pendingResponses.remove(requestId);
+
+                if (pendingResponse != null) {
+                    pendingResponse.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
@@ -6,15 +6,21 @@ import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasChooser;
 import fr.tp.inf112.projects.canvas.model.CanvasPersistenceManager;
 //import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+import fr.tp.inf112.projects.robotsim.protocol.ChunkedInputStream;
+import fr.tp.inf112.projects.robotsim.protocol.ChunkedOutputStream;
+import fr.tp.inf112.projects.robotsim.protocol.Frame;
+import fr.tp.inf112.projects.robotsim.protocol.FrameType;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
-import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
-import com.fasterxml.jackson.core.JsonProcessingException;
 
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -24,31 +30,26 @@ public class RemoteFactoryPersistenceManager implements CanvasPersistenceManager
     private final String serverAddress;
     private final int serverPort;
     private final CanvasChooser canvasChooser;
-    private static final ObjectMapper objectMapper;
+    private final FrameConnectionPool connectionPool;
+    private static final long RESPONSE_TIMEOUT = 30; // Seconds
 
     // Enum to define the current implementation choice
     private enum PersistImplementation {
         OBJECT_STREAM,
-        JSON_STREAM
+        JSON_STREAM,
+        FRAMED
     }
 
-    // Set the desired implementation here
-    private final PersistImplementation currentImplementation = PersistImplementation.OBJECT_STREAM;
+    // Set the desired implementation here, matching the one of the persistence server
+//    private final PersistImplementation currentImplementation = PersistImplementation.OBJECT_STREAM;
 //    private final PersistImplementation currentImplementation = PersistImplementation.JSON_STREAM;
-    
-    static {
-        PolymorphicTypeValidator ptv = BasicPolymorphicTypeValidator.builder()
-                .allowIfSubType("fr.tp.inf112.projects.robotsim.model")
-                .allowIfSubType("fr.tp.inf112.projects.canvas.model") // If needed for Canvas subclasses
-                .build();
-        objectMapper = new ObjectMapper();
-        objectMapper.activateDefaultTyping(ptv, ObjectMapper.DefaultTyping.NON_FINAL);
-    }
+    private final PersistImplementation currentImplementation = PersistImplementation.FRAMED;
 
     public RemoteFactoryPersistenceManager(String serverAddress, int serverPort) {
         this.serverAddress = serverAddress;
         this.serverPort = serverPort;
-        this.canvasChooser = new RemoteFileCanvasChooser("localhost", serverPort, "Remote Factory Models", serverAddress);
+        this.canvasChooser = new RemoteFileCanvasChooser(this, "Remote Factory Models", serverAddress);
+        this.connectionPool = new FrameConnectionPool(serverAddress, serverPort);
     }
 
     @Override
@@ -65,6 +66,9 @@ public class RemoteFactoryPersistenceManager implements CanvasPersistenceManager
             case JSON_STREAM:
                 persistUsingJsonStream(canvas);
                 break;
+            case FRAMED:
+                persistUsingFrames(canvas);
+                break;
             default:
                 LOGGER.warning("Unknown persist implementation selected.");
         }
@@ -97,21 +101,13 @@ public class RemoteFactoryPersistenceManager implements CanvasPersistenceManager
         }
     }
 
-    // Implementation 2: Using JSON Streams
+    // Implementation 2: Using JSON Streams, serialized straight to the connection as chunks
     private void persistUsingJsonStream(Canvas canvas) {
         LOGGER.info("Persisting factory model using JSON serialization...");
-        try (Socket socket = new Socket(serverAddress, serverPort);
-             OutputStream os = socket.getOutputStream();
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(os))) {
-
-            // Serialize the Canvas object to JSON
-            String json = objectMapper.writeValueAsString(canvas);
-            LOGGER.info("JSON being sent to server: " + json);
-
-            writer.write(json);
-            writer.flush();
-            LOGGER.info("Factory model serialized and sent to server.");
-
+        try {
+            String response = exchangeJson(FrameType.SAVE, body -> FactoryJson.getTypedWriter().writeValue(body, canvas),
+                                           ChunkedInputStream::readText);
+            LOGGER.info("Server response: " + response);
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error during JSON serialization persist operation.", e);
         }
@@ -124,6 +120,8 @@ public class RemoteFactoryPersistenceManager implements CanvasPersistenceManager
                 return readUsingObjectStream(id);
             case JSON_STREAM:
                 return readUsingJsonStream(id);
+            case FRAMED:
+                return readUsingFrames(id);
             default:
                 LOGGER.warning("Unknown read implementation selected.");
                 return null;
@@ -159,37 +157,141 @@ public class RemoteFactoryPersistenceManager implements CanvasPersistenceManager
         return null;
     }
 
-    // Implementation 2: Using JSON Streams
+    // Implementation 2: Using JSON Streams, the model being parsed as it is received
     private Canvas readUsingJsonStream(String id) {
         LOGGER.info("Read method using JSON Stream started.");
+        try {
+            return exchangeJson(FrameType.READ, body -> body.write(id.getBytes(StandardCharsets.UTF_8)),
+                                body -> FactoryJson.getTypedReader().readValue(body));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "IOException occurred during read operation.", e);
+        }
+        return null;
+    }
+
+    private interface BodyWriter {
+        void write(ChunkedOutputStream body) throws IOException;
+    }
+
+    private interface BodyReader<T> {
+        T read(ChunkedInputStream body) throws IOException;
+    }
+
+    // Sends the request type and its chunked body, then reads the response type and its chunked body
+    private <T> T exchangeJson(FrameType requestType, BodyWriter requestWriter, BodyReader<T> responseReader)
+            throws IOException {
         try (Socket socket = new Socket(serverAddress, serverPort);
-             OutputStream os = socket.getOutputStream();
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(os));
-             InputStream is = socket.getInputStream();
-             BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
 
-            // Send the identifier to the server
-            writer.write(id);
-            writer.newLine(); // Ensure the server reads the end of the line
-            writer.flush();
-            LOGGER.info("Identifier sent to server successfully.");
+            output.writeByte(requestType.getCode());
+            try (ChunkedOutputStream body = new ChunkedOutputStream(output)) {
+                requestWriter.write(body);
+            }
 
-            // Read the server's JSON response
-            String jsonResponse = reader.readLine();
-            LOGGER.info("Received JSON response from server.");
+            FrameType responseType = FrameType.valueOf(input.readByte());
+            try (ChunkedInputStream body = new ChunkedInputStream(input)) {
+                if (responseType == FrameType.ERROR) {
+                    throw new IOException("Server Error: " + body.readText());
+                }
+                return responseReader.read(body);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unexpected server response: " + e.getMessage(), e);
+        }
+    }
 
-            // Deserialize the JSON into a Canvas object
-            return objectMapper.readValue(jsonResponse, Canvas.class);
+    // Implementation 3: Using length-prefixed frames
+    private void persistUsingFrames(Canvas canvas) {
+        try {
+            Frame response = exchange(FrameType.SAVE, FactoryJson.getTypedWriter().writeValueAsBytes(canvas));
+            LOGGER.info("Server response: " + response.getText());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error during framed persist operation.", e);
+        }
+    }
 
-        } catch (JsonProcessingException e) {
-            LOGGER.log(Level.SEVERE, "Error during JSON deserialization.", e);
+    private Canvas readUsingFrames(String id) {
+        try {
+            Frame response = exchange(FrameType.READ, id.getBytes(StandardCharsets.UTF_8));
+            if (response.getType() == FrameType.MODEL) {
+                return FactoryJson.getTypedReader().readValue(response.getPayload());
+            }
+            LOGGER.warning("Server response: " + response.getText());
         } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "IOException occurred during read operation.", e);
+            LOGGER.log(Level.SEVERE, "Error during framed read operation.", e);
         }
         return null;
     }
-    
+
+    /**
+     * @return the identifiers of the models saved on the server.
+     */
+    public String[] listCanvasIds() throws IOException {
+        String ids;
+        switch (currentImplementation) {
+            case FRAMED:
+                Frame response = exchange(FrameType.LIST, new byte[0]);
+                if (response.getType() != FrameType.IDENTIFIERS) {
+                    throw new IOException(response.getText());
+                }
+                ids = response.getText();
+                break;
+            case JSON_STREAM:
+                ids = exchangeJson(FrameType.LIST, body -> { }, ChunkedInputStream::readText);
+                break;
+            default:
+                return listCanvasIdsUsingObjectStream();
+        }
+        return ids.isEmpty() ? new String[0] : ids.split("\n");
+    }
+
+    private String[] listCanvasIdsUsingObjectStream() throws IOException {
+        try (Socket socket = new Socket(serverAddress, serverPort);
+             ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
+             ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
+            oos.writeObject("LIST_FILES");
+            oos.flush();
+            Object response = ois.readObject();
+            if (response instanceof String[]) {
+                return (String[]) response;
+            }
+            throw new IOException("Server Error: " + response);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected server response: " + e.getMessage(), e);
+        }
+    }
+
+    // Requests of concurrent callers are pipelined over the pooled connections
+    private Frame exchange(FrameType requestType, byte[] payload) throws IOException {
+        CompletableFuture<Frame> response = connectionPool.send(requestType, payload);
+
+        try {
+            return response.get(RESPONSE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            response.cancel(false);
+            throw new IOException("No response from server to " + requestType + " request.", e);
+        } catch (InterruptedException e) {
+            response.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the server response.");
+        }
+    }
+
     public void deleteAllCanvases() {
+      if (currentImplementation != PersistImplementation.OBJECT_STREAM) {
+          try {
+              String response = currentImplementation == PersistImplementation.FRAMED
+                      ? exchange(FrameType.DELETE_ALL, new byte[0]).getText()
+                      : exchangeJson(FrameType.DELETE_ALL, body -> { }, ChunkedInputStream::readText);
+              LOGGER.info("Server response: " + response);
+          } catch (IOException e) {
+              LOGGER.log(Level.SEVERE, "Error while sending DELETE_ALL command to server.", e);
+          }
+          return;
+      }
       try (Socket socket = new Socket(serverAddress, serverPort);
            ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
            ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
@@ -112,17 +112,14 @@
 package fr.tp.inf112.projects.robotsim.client;
 import javax.swing.JOptionPane;
 import java.io.*;
-import java.net.Socket;
 import fr.tp.inf112.projects.canvas.view.FileCanvasChooser;
 
 public class RemoteFileCanvasChooser extends FileCanvasChooser {
-    private final String serverAddress;
-    private final int port;
+    private final RemoteFactoryPersistenceManager persistenceManager;
 
-    public RemoteFileCanvasChooser(String serverAddress, int port, String fileExtension, String documentTypeLabel) {
+    public RemoteFileCanvasChooser(RemoteFactoryPersistenceManager persistenceManager, String fileExtension, String documentTypeLabel) {
         super(fileExtension, documentTypeLabel); // Call the superclass constructor
-        this.serverAddress = serverAddress;
-        this.port = port;
+        this.persistenceManager = persistenceManager;
     }
 
     @Override
@@ -137,55 +134,31 @@ public class RemoteFileCanvasChooser extends FileCanvasChooser {
     }
 
     private String requestCanvasFileFromServer() {
-        try (Socket socket = new Socket(serverAddress, port);
-             ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
-             ObjectInputStream in = new ObjectInputStream(socket.getInputStream())) {
+        try {
+            // Request the file list from the server
+            String[] fileNames = persistenceManager.listCanvasIds();
 
-            // Send request for file list to the server
-            out.writeObject("LIST_FILES");
-            out.flush();
-
-            // Read the server's response
-            Object response = in.readObject();
-
-            if (response instanceof String[]) {
-                String[] fileNames = (String[]) response;
-
-                // Handle empty file list
-                if (fileNames.length == 0) {
-                    JOptionPane.showMessageDialog(null, "No files available on the server.", "Information", JOptionPane.INFORMATION_MESSAGE);
-                    return null;
-                }
-
-                // Display file names in a dialog and let the user choose one
-                return (String) JOptionPane.showInputDialog(
-                        null,
-                        "Choose a model file to open:",
-                        "Open Model File",
-                        JOptionPane.PLAIN_MESSAGE,
-                        null,
-                        fileNames,
-                        fileNames[0] // Default selection
-                );
-
-            } else if (response instanceof String) {
-                // Server sent a single string (e.g., an error message)
-                JOptionPane.showMessageDialog(null, "Server Error: " + response, "Error", JOptionPane.ERROR_MESSAGE);
+            // Handle empty file list
+            if (fileNames.length == 0) {
+                JOptionPane.showMessageDialog(null, "No files available on the server.", "Information", JOptionPane.INFORMATION_MESSAGE);
                 return null;
-
-            } else {
-                // Unexpected response type
-                throw new ClassCastException("Unexpected response type: " + response.getClass().getName());
             }
 
+            // Display file names in a dialog and let the user choose one
+            return (String) JOptionPane.showInputDialog(
+                    null,
+                    "Choose a model file to open:",
+                    "Open Model File",
+                    JOptionPane.PLAIN_MESSAGE,
+                    null,
+                    fileNames,
+                    fileNames[0] // Default selection
+            );
+
         } catch (IOException e) {
             JOptionPane.showMessageDialog(null, "Failed to connect to server: " + e.getMessage(), "Connection Error", JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
             return null;
-        } catch (ClassNotFoundException e) {
-            JOptionPane.showMessageDialog(null, "Unexpected server response: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-            return null;
         }
     }
 }
@@ -0,0 +1,22 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+/**
+ * Kinds of changes of a component reported to the factory observers.
+ */
+public enum ChangeKind {
+
+	/** The component was added to the factory. */
+	ADDED,
+
+	/** The component was removed from the factory. */
+	REMOVED,
+
+	/** The component moved. */
+	POSITION,
+
+	/** The component must be drawn differently, e.g. a door opened or a robot got blocked. */
+	STYLE,
+
+	/** A state of the component which is not drawn changed, e.g. the factory simulation was started. */
+	STATE
+}
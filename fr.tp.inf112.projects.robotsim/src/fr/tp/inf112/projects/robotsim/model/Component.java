@@ -30,7 +30,7 @@ import fr.tp.inf112.projects.canvas.model.Shape;
     @JsonSubTypes.Type(value = Factory.class, name = "Factory"),
     @JsonSubTypes.Type(value = Puck.class, name = "Puck")
 })
-public abstract class Component implements Figure, Serializable, Runnable {
+public abstract class Component implements Figure, Serializable {
 //    private static final Logger LOGGER = Logger.getLogger(Component.class.getName());
 
 	
@@ -67,19 +67,6 @@ public abstract class Component implements Figure, Serializable, Runnable {
 	}
 
 	
-	@Override
-    public void run() {
-        while (getFactory().isSimulationStarted()) {
-            behave(); // Execute the component's behavior
-            try {
-                Thread.sleep(50); // Pause briefly to simulate time
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt(); // Handle interruption
-                break;
-            }
-        }
-    }
-	
 	public String getId() {
 		return id;
 	}
@@ -128,7 +115,8 @@ public abstract class Component implements Figure, Serializable, Runnable {
 
 	protected boolean setxCoordinate(int xCoordinate) {
 		if ( getPositionedShape().setxCoordinate( xCoordinate ) ) {
-			notifyObservers();
+			updateFactoryIndex();
+			notifyObservers(ChangeKind.POSITION);
 			
 			return true;
 		}
@@ -143,7 +131,8 @@ public abstract class Component implements Figure, Serializable, Runnable {
 
 	protected boolean setyCoordinate(final int yCoordinate) {
 		if (getPositionedShape().setyCoordinate(yCoordinate) ) {
-			notifyObservers();
+			updateFactoryIndex();
+			notifyObservers(ChangeKind.POSITION);
 			
 			return true;
 		}
@@ -151,13 +140,35 @@ public abstract class Component implements Figure, Serializable, Runnable {
 		return false;
 	}
 
+	private void updateFactoryIndex() {
+		if (getFactory() != null) {
+			getFactory().componentMoved(this);
+		}
+	}
+
 //	protected void notifyObservers() {
 //		getFactory().notifyObservers();
 //	}
 	
+	/**
+	 * @return the flags of the drawn state of the component which is not
+	 * given by its position, e.g. whether a door is open.
+	 */
+	@JsonIgnore
+	public int getStateFlags() {
+		return 0;
+	}
+
+	protected void setStateFlags(final int stateFlags) {
+	}
+
 	public void notifyObservers() {
+		notifyObservers(ChangeKind.STYLE);
+	}
+
+	protected void notifyObservers(final ChangeKind kind) {
 	    if (getFactory() != null) {
-	        getFactory().notifyObservers(); // Notify only if the factory is not null
+	        getFactory().notifyObservers(this, kind); // Notify only if the factory is not null
 	    } else {
 	        System.err.println("Warning: In Component.notifyObservers, getFactory is null so we cannot notify observers.");
 	    }
@@ -187,9 +198,25 @@ public abstract class Component implements Figure, Serializable, Runnable {
 		return getPositionedShape().getHeight();
 	}
 	
+	// Smallest shape enclosing everything this component can overlay
+	@JsonIgnore
+	public PositionedShape getBounds() {
+		return getPositionedShape();
+	}
+	
 	public boolean behave() {
 		return false;
 	}
+	
+	/**
+	 * @return <code>true</code> if {@link #behave()} may do something, the
+	 * simulation engines skipping the components which are not active.
+	 */
+	@JsonIgnore
+	public boolean isActive() {
+		return false;
+	}
+	
 	@JsonIgnore
 	public boolean isMobile() {
 		return false;
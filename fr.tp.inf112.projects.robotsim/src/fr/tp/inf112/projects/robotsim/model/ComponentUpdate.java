@@ -0,0 +1,108 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Drawn state of a factory component sent to remote viewers after a change,
+ * instead of the whole factory model. The component is identified by its
+ * index in the list of the factory components.
+ */
+public class ComponentUpdate {
+
+	private final int index;
+
+	private final int xCoordinate;
+
+	private final int yCoordinate;
+
+	private final int stateFlags;
+
+	@JsonCreator
+	public ComponentUpdate(@JsonProperty("index") final int index,
+						   @JsonProperty("xCoordinate") final int xCoordinate,
+						   @JsonProperty("yCoordinate") final int yCoordinate,
+						   @JsonProperty("stateFlags") final int stateFlags) {
+		this.index = index;
+		this.xCoordinate = xCoordinate;
+		this.yCoordinate = yCoordinate;
+		this.stateFlags = stateFlags;
+	}
+
+	/**
+	 * @return the updates of the components of the factory which moved or
+	 * changed style, in the order of the factory components.
+	 */
+	public static List<ComponentUpdate> of(final FactoryChangeEvent event) {
+		final Factory factory = event.getFactory();
+		final List<ComponentUpdate> updates = new ArrayList<>();
+
+		// Only the changed components are visited, their indexes being looked up by the factory
+		for (final Component component : event.getChangedComponents()) {
+			final Set<ChangeKind> changes = event.getChanges(component);
+			final int index = factory.indexOf(component);
+
+			if (index >= 0 && (changes.contains(ChangeKind.POSITION) || changes.contains(ChangeKind.STYLE))) {
+				updates.add(new ComponentUpdate(index,
+												component.getxCoordinate(),
+												component.getyCoordinate(),
+												component.getStateFlags()));
+			}
+		}
+
+		updates.sort(Comparator.comparingInt(ComponentUpdate::getIndex));
+
+		return updates;
+	}
+
+	/**
+	 * @return <code>true</code> if the update could be applied to the factory,
+	 * <code>false</code> if the factory has no such component, in which case
+	 * the whole model must be retrieved again.
+	 */
+	public boolean applyTo(final Factory factory) {
+		final List<Component> components = factory.getComponents();
+
+		if (index < 0 || index >= components.size() || components.get(index) == null) {
+			return false;
+		}
+
+		final Component component = components.get(index);
+		component.setxCoordinate(xCoordinate);
+		component.setyCoordinate(yCoordinate);
+		component.setStateFlags(stateFlags);
+
+		return true;
+	}
+
+	@JsonProperty("index")
+	public int getIndex() {
+		return index;
+	}
+
+	@JsonProperty("xCoordinate")
+	public int getxCoordinate() {
+		return xCoordinate;
+	}
+
+	@JsonProperty("yCoordinate")
+	public int getyCoordinate() {
+		return yCoordinate;
+	}
+
+	@JsonProperty("stateFlags")
+	public int getStateFlags() {
+		return stateFlags;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [index=" + index + ", xCoordinate=" + xCoordinate +
+			   ", yCoordinate=" + yCoordinate + ", stateFlags=" + stateFlags + "]";
+	}
+}
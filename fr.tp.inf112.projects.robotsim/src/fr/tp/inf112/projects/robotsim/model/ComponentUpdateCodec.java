@@ -0,0 +1,129 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a frame of component updates, used to stream the
+ * changes of a simulated factory instead of JSON. A frame starts with a
+ * version byte and the number of updates, followed by each update as the
+ * difference of its component index with the previous one, its coordinates
+ * and its state flags. All the numbers are written as variable length
+ * integers, the coordinates zigzag encoded, so that an update usually takes
+ * five bytes.
+ */
+public final class ComponentUpdateCodec {
+
+	private static final int VERSION = 1;
+
+	private ComponentUpdateCodec() {
+	}
+
+	/**
+	 * @param updates the updates, in increasing order of component index.
+	 */
+	public static byte[] encode(final List<ComponentUpdate> updates) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream(2 + 5 * updates.size());
+		output.write(VERSION);
+		writeVarInt(output, updates.size());
+		int previousIndex = 0;
+
+		for (final ComponentUpdate update : updates) {
+			if (update.getIndex() < previousIndex) {
+				throw new IllegalArgumentException("Updates are not ordered by component index: " + update);
+			}
+
+			writeVarInt(output, update.getIndex() - previousIndex);
+			writeVarInt(output, zigzag(update.getxCoordinate()));
+			writeVarInt(output, zigzag(update.getyCoordinate()));
+			writeVarInt(output, update.getStateFlags());
+			previousIndex = update.getIndex();
+		}
+
+		return output.toByteArray();
+	}
+
+	public static List<ComponentUpdate> decode(final byte[] frame) {
+		final Reader reader = new Reader(frame);
+		final int version = reader.readByte();
+
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported component update frame version: " + version);
+		}
+
+		final int count = reader.readVarInt();
+		final List<ComponentUpdate> updates = new ArrayList<>(Math.min(count, frame.length));
+		int index = 0;
+
+		for (int updateIndex = 0; updateIndex < count; updateIndex++) {
+			index += reader.readVarInt();
+			final int xCoordinate = unzigzag(reader.readVarInt());
+			final int yCoordinate = unzigzag(reader.readVarInt());
+			final int stateFlags = reader.readVarInt();
+
+			updates.add(new ComponentUpdate(index, xCoordinate, yCoordinate, stateFlags));
+		}
+
+		if (reader.position != frame.length) {
+			throw new IllegalArgumentException("Trailing bytes after the component updates frame.");
+		}
+
+		return updates;
+	}
+
+	private static int zigzag(final int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(final int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeVarInt(final ByteArrayOutputStream output,
+									final int value) {
+		int remaining = value;
+
+		while ((remaining & ~0x7F) != 0) {
+			output.write((remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+
+		output.write(remaining);
+	}
+
+	private static final class Reader {
+
+		private final byte[] bytes;
+
+		private int position;
+
+		private Reader(final byte[] bytes) {
+			this.bytes = bytes;
+			position = 0;
+		}
+
+		private int readByte() {
+			if (position >= bytes.length) {
+				throw new IllegalArgumentException("Truncated component updates frame.");
+			}
+
+			return bytes[position++] & 0xFF;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+
+			for (int shift = 0; shift < 32; shift += 7) {
+				final int currentByte = readByte();
+				value |= (currentByte & 0x7F) << shift;
+
+				if ((currentByte & 0x80) == 0) {
+					return value;
+				}
+			}
+
+			throw new IllegalArgumentException("Malformed variable length integer in component updates frame.");
+		}
+	}
+}
@@ -16,6 +16,8 @@ public class Door extends Component {
 	private static final long serialVersionUID = 4038942468211075735L;
 
 	private static final int THICKNESS = 1;
+
+	private static final int OPEN_FLAG = 1;
 	
 
     
@@ -121,6 +123,21 @@ public class Door extends Component {
 		return open;
 	}
 
+	@Override
+	public int getStateFlags() {
+		return isOpen() ? OPEN_FLAG : 0;
+	}
+
+	@Override
+	protected void setStateFlags(final int stateFlags) {
+		if ((stateFlags & OPEN_FLAG) != 0) {
+			open();
+		}
+		else {
+			close();
+		}
+	}
+
 	public boolean open() {
 		if (isOpen()) {
 			return false;
@@ -128,7 +145,7 @@ public class Door extends Component {
 		
 		open = true;
 		
-		notifyObservers();
+		stateChanged();
 		
 		return true;
 	}
@@ -137,7 +154,7 @@ public class Door extends Component {
 		if (isOpen()) {
 			open = false;
 			
-			notifyObservers();
+			stateChanged();
 			
 			return true;
 		}
@@ -145,6 +162,14 @@ public class Door extends Component {
 		return false;
 	}
 
+	private void stateChanged() {
+		if (getFactory() != null) {
+			getFactory().topologyChanged(getBounds());
+		}
+		
+		notifyObservers(ChangeKind.STYLE);
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() + "]";
@@ -2,10 +2,16 @@ package fr.tp.inf112.projects.robotsim.model;
 
 
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -22,6 +28,9 @@ import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.Figure;
 import fr.tp.inf112.projects.canvas.model.Style;
 import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+import fr.tp.inf112.projects.robotsim.model.path.OccupancyGrid;
+import fr.tp.inf112.projects.robotsim.model.simulation.SimulationEngine;
+import fr.tp.inf112.projects.robotsim.model.simulation.TickSimulationEngine;
 import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 
@@ -32,6 +41,8 @@ public class Factory extends Component implements Canvas, Observable {
 	private static final long serialVersionUID = 5156526483612458192L;
 	
 	private static final ComponentStyle DEFAULT = new ComponentStyle(5.0f);
+	
+	private static final int MAX_TOPOLOGY_CHANGES = 64;
 
 	private boolean isInitialized = false;
 
@@ -67,9 +78,45 @@ public class Factory extends Component implements Canvas, Observable {
 	
 	@JsonIgnore // Exclude transient fields
 	private transient List<Observer> observers;
+
+	// Null for the default frame rate, as deserialization does not run the initializers of transient fields
+	@JsonIgnore
+	private transient Integer notificationFrameRate;
+
+	@JsonIgnore
+	private transient NotificationCoalescer notificationCoalescer;
 	
 	@JsonIgnore
-	private transient boolean simulationStarted;
+	private transient volatile boolean simulationStarted;
+	
+	@JsonIgnore
+	private transient SimulationEngine simulationEngine;
+	
+	// Built lazily, the mobile index being published first so that a thread seeing the static index also sees it
+	@JsonIgnore
+	private transient volatile SpatialIndex staticComponentsIndex;
+	
+	@JsonIgnore
+	private transient volatile SpatialIndex mobileComponentsIndex;
+	
+	// Incremented each time the set or the state of the obstacles may have changed
+	@JsonIgnore
+	private transient volatile long topologyVersion;
+	
+	// Bounds of the topology changes made since version topologyChangesStartVersion, oldest first
+	@JsonIgnore
+	private transient Deque<PositionedShape> topologyChanges;
+	
+	@JsonIgnore
+	private transient long topologyChangesStartVersion;
+	
+	// Occupancy grids shared by all the path finders of the factory, by resolution
+	@JsonIgnore
+	private transient volatile Map<Integer, OccupancyGrid> occupancyGrids;
+	
+	// Index of each component in the list of components, built lazily and dropped when components are added or removed
+	@JsonIgnore
+	private transient volatile Map<Component, Integer> componentIndexes;
 	
 	
 	public Factory() {
@@ -90,13 +137,38 @@ public class Factory extends Component implements Canvas, Observable {
 		simulationStarted = false;
 	}
 	
-	public List<Observer> getObservers() {
+	public synchronized List<Observer> getObservers() {
 		if (observers == null) {
-			observers = new ArrayList<>();
+			// Copied on write as the observers are notified from the notification thread
+			observers = new CopyOnWriteArrayList<>();
 		}
 		
 		return observers;
 	}
+
+	/**
+	 * Sets the maximum number of change events sent per second to the
+	 * observers, or zero to notify them synchronously on each change.
+	 */
+	@JsonIgnore
+	public synchronized void setNotificationFrameRate(final int notificationFrameRate) {
+		if (notificationFrameRate < 0) {
+			throw new IllegalArgumentException("Negative notification frame rate: " + notificationFrameRate);
+		}
+
+		this.notificationFrameRate = notificationFrameRate;
+		notificationCoalescer = null;
+	}
+
+	private synchronized NotificationCoalescer getNotificationCoalescer() {
+		if (notificationCoalescer == null) {
+			notificationCoalescer = new NotificationCoalescer(this, notificationFrameRate == null
+																	? NotificationCoalescer.DEFAULT_FRAME_RATE
+																	: notificationFrameRate);
+		}
+
+		return notificationCoalescer;
+	}
 	
 	public void setFactory(Factory factory) {
 	    this.factory = factory;
@@ -113,19 +185,34 @@ public class Factory extends Component implements Canvas, Observable {
 	}
 	
 	public void notifyObservers() {
+		notifyObservers(this, ChangeKind.STATE);
+	}
+
+	/**
+	 * Reports a change of the given component to the observers of the root
+	 * factory. The changes are batched into at most one
+	 * {@link FactoryChangeEvent} per notification frame.
+	 */
+	void notifyObservers(final Component changedComponent,
+						 final ChangeKind kind) {
 		if (!isInitialized) {
             return;
         }
 		if (factory != null) {
-	        factory.notifyObservers();
+	        factory.notifyObservers(changedComponent, kind);
+		}
+		else if (observers != null && !observers.isEmpty()) {
+			getNotificationCoalescer().componentChanged(changedComponent, kind);
 		}
-//		else {throw new IllegalStateException("Factory is null; cannot notify observers.");}
 	}
 	
 	public boolean addComponent(final Component component) {
 	    if (components.add(component)) {
+	        componentIndexes = null;
 	        component.setFactory(this); // Set the factory reference for the component
-	        notifyObservers(); // Notify observers after setting the reference
+	        indexComponent(component);
+	        topologyChanged(component == null ? null : component.getBounds());
+	        notifyObservers(component, ChangeKind.ADDED); // Notify observers after setting the reference
 	        return true;
 	    }
 	    return false;
@@ -135,7 +222,10 @@ public class Factory extends Component implements Canvas, Observable {
 
 	public boolean removeComponent(final Component component) {
 		if (components.remove(component)) {
-			notifyObservers();
+			componentIndexes = null;
+			unindexComponent(component);
+			topologyChanged(component == null ? null : component.getBounds());
+			notifyObservers(component, ChangeKind.REMOVED);
 			
 			return true;
 		}
@@ -147,14 +237,231 @@ public class Factory extends Component implements Canvas, Observable {
 		return components;
 	}
 	
+	/**
+	 * @return a new list of the robots of the factory, in the order of its components.
+	 */
+	@JsonIgnore
+	public List<Robot> getRobots() {
+		final List<Robot> robots = new ArrayList<>();
+		
+		for (final Component component : getComponents()) {
+			if (component instanceof Robot) {
+				robots.add((Robot) component);
+			}
+		}
+		
+		return robots;
+	}
+	
+	/**
+	 * @return the index of the component in the list of the factory
+	 * components, looked up without walking the list, or -1 if the factory
+	 * has no such component.
+	 */
+	public int indexOf(final Component component) {
+		Map<Component, Integer> indexes = componentIndexes;
+		
+		if (indexes == null || isStale(indexes.get(component), component)) {
+			indexes = buildComponentIndexes();
+		}
+		
+		final Integer index = indexes.get(component);
+		
+		return index == null ? -1 : index;
+	}
+	
+	// The list of components may have been modified directly since the indexes were built
+	private boolean isStale(final Integer index,
+							final Component component) {
+		return index != null && (index >= components.size() || components.get(index) != component);
+	}
+	
+	private synchronized Map<Component, Integer> buildComponentIndexes() {
+		final Map<Component, Integer> indexes = new IdentityHashMap<>();
+		
+		for (int index = 0; index < components.size(); index++) {
+			if (components.get(index) != null) {
+				indexes.put(components.get(index), index);
+			}
+		}
+		
+		componentIndexes = indexes;
+		
+		return indexes;
+	}
+	
+	private synchronized void buildSpatialIndexes() {
+		if (staticComponentsIndex == null) {
+			final SpatialIndex mobileIndex = new SpatialIndex();
+			final SpatialIndex staticIndex = new SpatialIndex();
+
+			for (final Component component : getComponents()) {
+				if (component != null) {
+					(component.isMobile() ? mobileIndex : staticIndex).add(component);
+				}
+			}
+
+			mobileComponentsIndex = mobileIndex;
+			staticComponentsIndex = staticIndex;
+		}
+	}
+
+	private SpatialIndex getStaticComponentsIndex() {
+		final SpatialIndex index = staticComponentsIndex;
+
+		if (index != null) {
+			return index;
+		}
+
+		buildSpatialIndexes();
+
+		return staticComponentsIndex;
+	}
+
+	private SpatialIndex getMobileComponentsIndex() {
+		final SpatialIndex index = mobileComponentsIndex;
+
+		if (index != null) {
+			return index;
+		}
+
+		buildSpatialIndexes();
+
+		return mobileComponentsIndex;
+	}
+
+	private void indexComponent(final Component component) {
+		if (staticComponentsIndex != null) {
+			(component.isMobile() ? getMobileComponentsIndex() : getStaticComponentsIndex()).add(component);
+		}
+	}
+
+	private void unindexComponent(final Component component) {
+		if (staticComponentsIndex != null) {
+			getStaticComponentsIndex().remove(component);
+			getMobileComponentsIndex().remove(component);
+		}
+	}
+
+	// Called by components whose position changed so that spatial queries stay accurate
+	void componentMoved(final Component component) {
+		if (!component.isMobile()) {
+			// The previous bounds of the component are not known anymore
+			topologyChanged(null);
+		}
+
+		if (staticComponentsIndex == null) {
+			return;
+		}
+
+		final SpatialIndex index = component.isMobile() ? getMobileComponentsIndex() : getStaticComponentsIndex();
+		final SpatialIndex otherIndex = component.isMobile() ? getStaticComponentsIndex() : getMobileComponentsIndex();
+
+		if (otherIndex.remove(component) || index.contains(component)) {
+			index.update(component);
+		}
+	}
+
+	@JsonIgnore
+	public long getTopologyVersion() {
+		return topologyVersion;
+	}
+
+	/**
+	 * Returns the occupancy grid of the factory at the given resolution, shared
+	 * by all the path finders reading it. Grids are never modified: when the
+	 * topology changes a new grid is derived from the previous one, while the
+	 * searches in progress keep reading the grid they started with.
+	 */
+	public OccupancyGrid getOccupancyGrid(final int resolution) {
+		final Map<Integer, OccupancyGrid> grids = getOccupancyGrids();
+		final OccupancyGrid grid = grids.get(resolution);
+		
+		if (grid != null && !grid.isOutdated(this)) {
+			return grid;
+		}
+		
+		return grids.compute(resolution, (gridResolution, previousGrid) -> previousGrid == null ?
+				OccupancyGrid.rasterize(this, gridResolution) : previousGrid.update(this));
+	}
+	
+	private Map<Integer, OccupancyGrid> getOccupancyGrids() {
+		if (occupancyGrids == null) {
+			synchronized (this) {
+				if (occupancyGrids == null) {
+					occupancyGrids = new ConcurrentHashMap<>();
+				}
+			}
+		}
+		
+		return occupancyGrids;
+	}
+	
+	/**
+	 * Returns the bounds of the areas whose traversability may have changed
+	 * since the given topology version, so that path finders can update only
+	 * these areas.
+	 * 
+	 * @return <code>null</code> if the changes made since this version are not
+	 * known anymore, in which case the whole factory must be considered changed.
+	 */
+	public synchronized List<PositionedShape> getTopologyChangesSince(final long version) {
+		if (version < topologyChangesStartVersion || version > topologyVersion) {
+			return null;
+		}
+		
+		final List<PositionedShape> changes = new ArrayList<>();
+		long changeVersion = topologyChangesStartVersion;
+		
+		if (topologyChanges != null) {
+			for (final PositionedShape changedBounds : topologyChanges) {
+				if (++changeVersion > version) {
+					changes.add(changedBounds);
+				}
+			}
+		}
+		
+		return changes;
+	}
+
+	/**
+	 * Called whenever the traversability of the factory may have changed, e.g.
+	 * when a door opens or closes.
+	 * 
+	 * @param changedBounds the bounds of the area that changed, or
+	 * <code>null</code> if it is unknown.
+	 */
+	synchronized void topologyChanged(final PositionedShape changedBounds) {
+		topologyVersion++;
+		
+		if (topologyChanges == null) {
+			topologyChanges = new ArrayDeque<>();
+		}
+		
+		if (changedBounds == null) {
+			topologyChanges.clear();
+			topologyChangesStartVersion = topologyVersion;
+			
+			return;
+		}
+		
+		if (topologyChanges.size() == MAX_TOPOLOGY_CHANGES) {
+			topologyChanges.removeFirst();
+			topologyChangesStartVersion++;
+		}
+		
+		topologyChanges.addLast(new RectangularShape(changedBounds.getxCoordinate(),
+													 changedBounds.getyCoordinate(),
+													 changedBounds.getWidth(),
+													 changedBounds.getHeight()));
+	}
+
 //	 Added this
 	public Component getMobileComponentAt(final Position position, final Component movingComponent) {
-	    for (final Component component : getComponents()) {
-	        if (component != movingComponent && component.isMobile() && component.getPosition().equals(position)) {
-	            return component;
-	        }
-	    }
-	    return null; // No mobile component found at the specified position
+	    // Null if no mobile component is found at the specified position
+	    return getMobileComponentsIndex().find(position, component -> component != movingComponent &&
+	                                                                  component.isMobile() &&
+	                                                                  component.getPosition().equals(position));
 	}
 
 
@@ -180,6 +487,24 @@ public class Factory extends Component implements Canvas, Observable {
 	public boolean isSimulationStarted() {
 		return simulationStarted;
 	}
+	
+	@JsonIgnore
+	public synchronized SimulationEngine getSimulationEngine() {
+		if (simulationEngine == null) {
+			simulationEngine = new TickSimulationEngine();
+		}
+		
+		return simulationEngine;
+	}
+	
+	@JsonIgnore
+	public synchronized void setSimulationEngine(final SimulationEngine simulationEngine) {
+		if (isSimulationStarted()) {
+			throw new IllegalStateException("The simulation engine cannot be changed while the simulation is started.");
+		}
+		
+		this.simulationEngine = simulationEngine;
+	}
 
 	
 	public void startSimulation() {
@@ -187,9 +512,7 @@ public class Factory extends Component implements Canvas, Observable {
 	        this.simulationStarted = true;
 	        notifyObservers();
 
-	        for (Component component : getComponents()) {
-	            new Thread(component).start(); // Start a new thread for each component
-	        }
+	        getSimulationEngine().start(this);
 	    }
 	}
 
@@ -197,11 +520,17 @@ public class Factory extends Component implements Canvas, Observable {
 	public void stopSimulation() {
 		if (isSimulationStarted()) {
 			this.simulationStarted = false;
+			getSimulationEngine().stop();
 			
 			notifyObservers();
 		}
 	}
 
+	@Override
+	public boolean isActive() {
+		return true;
+	}
+
 	@Override
 	public boolean behave() {
 		boolean behaved = true;
@@ -233,7 +562,8 @@ public class Factory extends Component implements Canvas, Observable {
 	    
 	    int displacement = motion.moveToTarget();
 	    if (displacement != 0) {
-	        notifyObservers(); // Notify the GUI of movement
+	        componentMoved(componentToMove);
+	        notifyObservers(componentToMove, ChangeKind.POSITION); // Notify the GUI of movement
 	    }
 
 	    // Move the component to the target position
@@ -248,23 +578,18 @@ public class Factory extends Component implements Canvas, Observable {
 	}
 	
 	public boolean hasObstacleAt(final PositionedShape shape) {
-		for (final Component component : getComponents()) {
-			if (component.overlays(shape) && !component.canBeOverlayed(shape)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return hasObstacleAt(getStaticComponentsIndex(), shape) || hasObstacleAt(getMobileComponentsIndex(), shape);
+	}
+	
+	private static boolean hasObstacleAt(final SpatialIndex index,
+										 final PositionedShape shape) {
+		return index.find(shape, component -> component.overlays(shape) && !component.canBeOverlayed(shape)) != null;
 	}
 	
 	public boolean hasMobileComponentAt(final PositionedShape shape,
 										final Component movingComponent) {
-		for (final Component component : getComponents()) {
-			if (component != movingComponent && component.isMobile() && component.overlays(shape)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return getMobileComponentsIndex().find(shape, component -> component != movingComponent &&
+																	component.isMobile() &&
+																	component.overlays(shape)) != null;
 	}
 }
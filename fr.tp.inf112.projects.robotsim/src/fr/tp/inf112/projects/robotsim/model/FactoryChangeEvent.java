@@ -0,0 +1,70 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch of the changes made to a factory since its observers were last
+ * notified. Only the components listed by the event changed, so that an
+ * observer can update the figures of those components alone.
+ */
+public class FactoryChangeEvent {
+
+	private final Factory factory;
+
+	private final Map<Component, Set<ChangeKind>> changes;
+
+	/**
+	 * @param changes the kinds of changes of each changed component, which
+	 * must not be modified afterwards.
+	 */
+	public FactoryChangeEvent(final Factory factory,
+							  final Map<Component, Set<ChangeKind>> changes) {
+		this.factory = factory;
+		this.changes = Collections.unmodifiableMap(changes);
+	}
+
+	public Factory getFactory() {
+		return factory;
+	}
+
+	/**
+	 * @return the components which changed, including the factory itself if
+	 * its simulation state changed.
+	 */
+	public Set<Component> getChangedComponents() {
+		return changes.keySet();
+	}
+
+	/**
+	 * @return the kinds of changes of the given component, empty if it did not
+	 * change. A component added and removed during the same batch is reported
+	 * with both kinds.
+	 */
+	public Set<ChangeKind> getChanges(final Component component) {
+		final Set<ChangeKind> componentChanges = changes.get(component);
+
+		return componentChanges == null ? Collections.emptySet() : Collections.unmodifiableSet(componentChanges);
+	}
+
+	/**
+	 * @return the components having changed with the given kind.
+	 */
+	public Set<Component> getChangedComponents(final ChangeKind kind) {
+		final Set<Component> components = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (final Map.Entry<Component, Set<ChangeKind>> entry : changes.entrySet()) {
+			if (entry.getValue().contains(kind)) {
+				components.add(entry.getKey());
+			}
+		}
+
+		return components;
+	}
+
+	public boolean isFactoryChanged() {
+		return changes.containsKey(factory);
+	}
+}
@@ -0,0 +1,12 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import fr.tp.inf112.projects.canvas.controller.Observer;
+
+/**
+ * Observer of a factory receiving, instead of a plain {@link #modelChanged()}
+ * call, the batch of changes made since its previous notification.
+ */
+public interface FactoryChangeObserver extends Observer {
+
+	void factoryChanged(FactoryChangeEvent event);
+}
@@ -0,0 +1,422 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+import fr.tp.inf112.projects.robotsim.model.path.AStarFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.CachingFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * Generator of factories of any size for scale testing. The rooms are laid out
+ * on a grid separated by corridors, where the charging stations and the robots
+ * are placed. Rooms, doors, areas and machines are sized and placed at random,
+ * the same seed and settings always generating the same factory.
+ * <p>
+ * Robots are given targets among the machines of the rooms having an open door
+ * and the charging stations, so that they have a path to their targets when
+ * the simulation starts.
+ */
+public class FactoryGenerator {
+
+	private static final int CORRIDOR_WIDTH = 20;
+
+	private static final int MIN_ROOM_SIZE = 40;
+
+	// Walls within a single cell of the path finder grids, or doors would not let robots go through them
+	private static final int ROOM_ALIGNMENT = 10;
+
+	private static final int DOOR_WIDTH = 20;
+
+	private static final int AREA_MARGIN = 10;
+
+	private static final int MACHINE_SIZE = 10;
+
+	private static final int CHARGING_STATION_SIZE = 10;
+
+	// Side of the cells of the corridors where robots and charging stations are placed
+	private static final int SLOT_SIZE = 5;
+
+	private static final int ROBOT_RADIUS = 2;
+
+	private final long seed;
+
+	private int width;
+
+	private int height;
+
+	private int roomCount;
+
+	private int doorsPerRoom;
+
+	private double openDoorRatio;
+
+	private int areasPerRoom;
+
+	private int machineCount;
+
+	private int chargingStationCount;
+
+	private int robotCount;
+
+	private int targetsPerRobot;
+
+	private Function<Factory, FactoryPathFinder> pathFinderFactory;
+
+	public FactoryGenerator(final long seed) {
+		this.seed = seed;
+
+		width = 1000;
+		height = 1000;
+		roomCount = 9;
+		doorsPerRoom = 2;
+		openDoorRatio = 0.75;
+		areasPerRoom = 2;
+		machineCount = 18;
+		chargingStationCount = 2;
+		robotCount = 20;
+		targetsPerRobot = 3;
+
+		// A single path finder shared by all the robots, as in the simulator application
+		pathFinderFactory = factory -> new CachingFactoryPathFinder(new AStarFactoryPathFinder(factory, 5), factory, 5);
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setDimensions(final int width,
+							  final int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	public void setRoomCount(final int roomCount) {
+		this.roomCount = roomCount;
+	}
+
+	/**
+	 * @param doorsPerRoom from 1 to 4, the doors of a room being on different walls.
+	 */
+	public void setDoorsPerRoom(final int doorsPerRoom) {
+		if (doorsPerRoom < 1 || doorsPerRoom > Room.WALL.values().length) {
+			throw new IllegalArgumentException("Invalid number of doors per room: " + doorsPerRoom);
+		}
+
+		this.doorsPerRoom = doorsPerRoom;
+	}
+
+	/**
+	 * @param openDoorRatio the probability that a door is open.
+	 */
+	public void setOpenDoorRatio(final double openDoorRatio) {
+		this.openDoorRatio = openDoorRatio;
+	}
+
+	public void setAreasPerRoom(final int areasPerRoom) {
+		this.areasPerRoom = areasPerRoom;
+	}
+
+	/**
+	 * @param machineCount the number of machines, an area holding at most one.
+	 */
+	public void setMachineCount(final int machineCount) {
+		this.machineCount = machineCount;
+	}
+
+	public void setChargingStationCount(final int chargingStationCount) {
+		this.chargingStationCount = chargingStationCount;
+	}
+
+	public void setRobotCount(final int robotCount) {
+		this.robotCount = robotCount;
+	}
+
+	public void setTargetsPerRobot(final int targetsPerRobot) {
+		this.targetsPerRobot = targetsPerRobot;
+	}
+
+	/**
+	 * @param pathFinderFactory creates the path finder shared by the robots of
+	 * the generated factory.
+	 */
+	public void setPathFinderFactory(final Function<Factory, FactoryPathFinder> pathFinderFactory) {
+		this.pathFinderFactory = pathFinderFactory;
+	}
+
+	/**
+	 * @return a new initialized factory.
+	 * @throws IllegalArgumentException if the components do not fit in the
+	 * factory.
+	 */
+	public Factory generate() {
+		if (machineCount > roomCount * areasPerRoom) {
+			throw new IllegalArgumentException(machineCount + " machines do not fit in " + roomCount * areasPerRoom + " areas.");
+		}
+
+		final Random random = new Random(seed);
+		final Factory factory = new Factory(width, height, "Generated factory " + seed);
+		final List<Room> rooms = createRooms(factory, random);
+		final List<Area> areas = new ArrayList<>();
+		final Set<Area> reachableAreas = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (final Room room : rooms) {
+			final boolean reachable = createDoors(room, random);
+			final List<Area> roomAreas = createAreas(room);
+			areas.addAll(roomAreas);
+
+			if (reachable) {
+				reachableAreas.addAll(roomAreas);
+			}
+		}
+
+		final List<Component> targets = new ArrayList<>();
+		Collections.shuffle(areas, random);
+
+		for (final Area area : areas.subList(0, machineCount)) {
+			final Machine machine = createMachine(area);
+
+			if (reachableAreas.contains(area)) {
+				targets.add(machine);
+			}
+		}
+
+		final CorridorSlots slots = new CorridorSlots(rooms, random);
+		targets.addAll(createChargingStations(factory, slots));
+		createRobots(factory, slots, targets, random);
+
+		factory.initialize();
+
+		return factory;
+	}
+
+	// Rooms centered in the cells of a grid having about the aspect ratio of the factory
+	private List<Room> createRooms(final Factory factory,
+								   final Random random) {
+		final List<Room> rooms = new ArrayList<>();
+
+		if (roomCount == 0) {
+			return rooms;
+		}
+
+		final int columnCount = (int) Math.ceil(Math.sqrt((double) roomCount * width / height));
+		final int rowCount = (roomCount + columnCount - 1) / columnCount;
+		final int cellWidth = width / columnCount;
+		final int cellHeight = height / rowCount;
+		final int maxRoomWidth = cellWidth - 2 * CORRIDOR_WIDTH;
+		final int maxRoomHeight = cellHeight - 2 * CORRIDOR_WIDTH;
+
+		if (maxRoomWidth < MIN_ROOM_SIZE || maxRoomHeight < MIN_ROOM_SIZE) {
+			throw new IllegalArgumentException(roomCount + " rooms do not fit in a factory of " + width + " x " + height + ".");
+		}
+
+		for (int index = 0; index < roomCount; index++) {
+			final int roomWidth = align(maxRoomWidth - random.nextInt((maxRoomWidth - MIN_ROOM_SIZE) / 4 + 1));
+			final int roomHeight = align(maxRoomHeight - random.nextInt((maxRoomHeight - MIN_ROOM_SIZE) / 4 + 1));
+			final int xCoordinate = align((index % columnCount) * cellWidth + (cellWidth - roomWidth) / 2);
+			final int yCoordinate = align((index / columnCount) * cellHeight + (cellHeight - roomHeight) / 2);
+			rooms.add(new Room(factory, new RectangularShape(xCoordinate, yCoordinate, roomWidth, roomHeight), "Room " + (index + 1)));
+		}
+
+		return rooms;
+	}
+
+	private static int align(final int coordinate) {
+		return coordinate - coordinate % ROOM_ALIGNMENT;
+	}
+
+	/**
+	 * @return <code>true</code> if one of the doors of the room is open.
+	 */
+	private boolean createDoors(final Room room,
+								final Random random) {
+		final List<Room.WALL> walls = new ArrayList<>(List.of(Room.WALL.values()));
+		Collections.shuffle(walls, random);
+		boolean open = false;
+
+		for (final Room.WALL wall : walls.subList(0, doorsPerRoom)) {
+			final int wallLength = wall == Room.WALL.TOP || wall == Room.WALL.BOTTOM ? room.getWidth() : room.getHeight();
+			final int doorWidth = Math.min(DOOR_WIDTH, wallLength / 3);
+			final int offset = doorWidth + random.nextInt(wallLength - 3 * doorWidth + 1);
+			final boolean doorOpen = random.nextDouble() < openDoorRatio;
+			new Door(room, wall, offset, doorWidth, doorOpen, room.getName() + " " + wall.name().toLowerCase() + " door");
+			open |= doorOpen;
+		}
+
+		return open;
+	}
+
+	// Areas side by side along the width of the room
+	private List<Area> createAreas(final Room room) {
+		final List<Area> areas = new ArrayList<>();
+
+		if (areasPerRoom == 0) {
+			return areas;
+		}
+
+		final int areaWidth = (room.getWidth() - AREA_MARGIN) / areasPerRoom - AREA_MARGIN;
+		final int areaHeight = room.getHeight() - 2 * AREA_MARGIN;
+
+		if (areaWidth < MACHINE_SIZE + 2) {
+			throw new IllegalArgumentException(areasPerRoom + " areas do not fit in " + room.getName() + ".");
+		}
+
+		for (int index = 0; index < areasPerRoom; index++) {
+			final int xCoordinate = room.getxCoordinate() + AREA_MARGIN + index * (areaWidth + AREA_MARGIN);
+			final RectangularShape shape = new RectangularShape(xCoordinate, room.getyCoordinate() + AREA_MARGIN, areaWidth, areaHeight);
+			areas.add(new Area(room, shape, room.getName() + " area " + (index + 1)));
+		}
+
+		return areas;
+	}
+
+	private Machine createMachine(final Area area) {
+		final int xCoordinate = area.getxCoordinate() + (area.getWidth() - MACHINE_SIZE) / 2;
+		final int yCoordinate = area.getyCoordinate() + (area.getHeight() - MACHINE_SIZE) / 2;
+		final RectangularShape shape = new RectangularShape(xCoordinate, yCoordinate, MACHINE_SIZE, MACHINE_SIZE);
+
+		return new Machine(area, shape, area.getName() + " machine");
+	}
+
+	private List<ChargingStation> createChargingStations(final Factory factory,
+														 final CorridorSlots slots) {
+		final List<ChargingStation> chargingStations = new ArrayList<>();
+		final int slotSpan = (CHARGING_STATION_SIZE + SLOT_SIZE - 1) / SLOT_SIZE + 1;
+
+		while (chargingStations.size() < chargingStationCount) {
+			final int slot = slots.takeFree(slotSpan);
+			final RectangularShape shape = new RectangularShape(slots.xCoordinate(slot) + SLOT_SIZE / 2,
+																slots.yCoordinate(slot) + SLOT_SIZE / 2,
+																CHARGING_STATION_SIZE,
+																CHARGING_STATION_SIZE);
+			chargingStations.add(new ChargingStation(factory, shape, "Charging station " + (chargingStations.size() + 1)));
+		}
+
+		return chargingStations;
+	}
+
+	private void createRobots(final Factory factory,
+							  final CorridorSlots slots,
+							  final List<Component> targets,
+							  final Random random) {
+		final FactoryPathFinder pathFinder = pathFinderFactory.apply(factory);
+
+		for (int index = 0; index < robotCount; index++) {
+			final int slot = slots.takeFree(1);
+			final CircularShape shape = new CircularShape(slots.xCoordinate(slot), slots.yCoordinate(slot), ROBOT_RADIUS);
+			final Robot robot = new Robot(factory, pathFinder, shape, new Battery(10), "Robot " + (index + 1));
+
+			for (int targetIndex = 0; targetIndex < targetsPerRobot && !targets.isEmpty(); targetIndex++) {
+				robot.addTargetComponent(targets.get(random.nextInt(targets.size())));
+			}
+		}
+	}
+
+	/**
+	 * Square cells of the factory outside of the rooms, taken in a random order
+	 * by the charging stations and robots.
+	 */
+	private final class CorridorSlots {
+
+		private final int columnCount;
+
+		private final boolean[] taken;
+
+		private final int[] order;
+
+		private int nextIndex;
+
+		private CorridorSlots(final List<Room> rooms,
+							  final Random random) {
+			columnCount = width / SLOT_SIZE;
+			final int rowCount = height / SLOT_SIZE;
+			taken = new boolean[columnCount * rowCount];
+
+			// Keeps a free slot around the rooms for the robots to go round them
+			for (final Room room : rooms) {
+				final RectangularShape bounds = (RectangularShape) room.getBounds();
+				final int firstColumn = Math.max(bounds.getxCoordinate() / SLOT_SIZE - 1, 0);
+				final int lastColumn = Math.min((bounds.getxCoordinate() + bounds.getWidth()) / SLOT_SIZE + 1, columnCount - 1);
+				final int firstRow = Math.max(bounds.getyCoordinate() / SLOT_SIZE - 1, 0);
+				final int lastRow = Math.min((bounds.getyCoordinate() + bounds.getHeight()) / SLOT_SIZE + 1, rowCount - 1);
+
+				for (int row = firstRow; row <= lastRow; row++) {
+					for (int column = firstColumn; column <= lastColumn; column++) {
+						taken[row * columnCount + column] = true;
+					}
+				}
+			}
+
+			order = new int[taken.length];
+
+			for (int slot = 0; slot < order.length; slot++) {
+				order[slot] = slot;
+			}
+
+			for (int index = order.length - 1; index > 0; index--) {
+				final int otherIndex = random.nextInt(index + 1);
+				final int slot = order[index];
+				order[index] = order[otherIndex];
+				order[otherIndex] = slot;
+			}
+		}
+
+		/**
+		 * Takes the next free square of span x span slots.
+		 *
+		 * @return the top left slot of the square.
+		 */
+		private int takeFree(final int span) {
+			while (nextIndex < order.length) {
+				final int slot = order[nextIndex++];
+
+				if (isFree(slot, span)) {
+					for (int row = 0; row < span; row++) {
+						for (int column = 0; column < span; column++) {
+							taken[slot + row * columnCount + column] = true;
+						}
+					}
+
+					return slot;
+				}
+			}
+
+			throw new IllegalArgumentException("Not enough room in the corridors of a factory of " + width + " x " + height + ".");
+		}
+
+		private boolean isFree(final int slot,
+							   final int span) {
+			final int column = slot % columnCount;
+			final int row = slot / columnCount;
+
+			if (column + span > columnCount || (row + span) * columnCount > taken.length) {
+				return false;
+			}
+
+			for (int rowOffset = 0; rowOffset < span; rowOffset++) {
+				for (int columnOffset = 0; columnOffset < span; columnOffset++) {
+					if (taken[slot + rowOffset * columnCount + columnOffset]) {
+						return false;
+					}
+				}
+			}
+
+			return true;
+		}
+
+		private int xCoordinate(final int slot) {
+			return (slot % columnCount) * SLOT_SIZE;
+		}
+
+		private int yCoordinate(final int slot) {
+			return (slot / columnCount) * SLOT_SIZE;
+		}
+	}
+}
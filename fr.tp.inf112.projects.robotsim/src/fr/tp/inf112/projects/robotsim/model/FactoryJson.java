@@ -0,0 +1,137 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+
+/**
+ * JSON mapping of factory models shared by the persistence and simulation
+ * clients and servers. Object mappers cache the serializers of the classes
+ * they met, so they are built once here and only used through the immutable,
+ * thread safe readers and writers bound to {@link Factory}.
+ * <p>
+ * When a Jackson bytecode generation module, Blackbird or else Afterburner,
+ * is on the class path, it is registered to speed up the property accessors,
+ * unless the {@value #ACCELERATION_PROPERTY} system property is set to
+ * <code>false</code>.
+ */
+public final class FactoryJson {
+
+	private static final Logger LOGGER = Logger.getLogger(FactoryJson.class.getName());
+
+	public static final String ACCELERATION_PROPERTY = "fr.tp.inf112.projects.robotsim.json.acceleration";
+
+	private static final String[] ACCELERATION_MODULE_CLASS_NAMES = {
+		"com.fasterxml.jackson.module.blackbird.BlackbirdModule",
+		"com.fasterxml.jackson.module.afterburner.AfterburnerModule"
+	};
+
+	private static final ObjectMapper TYPED_MAPPER = newTypedMapper();
+
+	private static final ObjectReader TYPED_READER = TYPED_MAPPER.readerFor(Factory.class);
+
+	private static final ObjectWriter TYPED_WRITER = TYPED_MAPPER.writerFor(Factory.class);
+
+	private FactoryJson() {
+	}
+
+	/**
+	 * @return the mapper writing the class of each non final value, checked
+	 * against the model classes when read back, as the persistence server
+	 * stores the factory models.
+	 */
+	public static ObjectMapper getTypedMapper() {
+		return TYPED_MAPPER;
+	}
+
+	public static ObjectReader getTypedReader() {
+		return TYPED_READER;
+	}
+
+	public static ObjectWriter getTypedWriter() {
+		return TYPED_WRITER;
+	}
+
+	/**
+	 * Reads the identifier of a factory model from its JSON document without
+	 * building the model, so that the document can be stored as received.
+	 *
+	 * @throws IOException if the document is not well formed JSON or has no
+	 * identifier.
+	 */
+	public static String readId(final byte[] document)
+	throws IOException {
+		String id = null;
+
+		try (final JsonParser parser = TYPED_MAPPER.getFactory().createParser(document)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Factory model document is not a JSON object.");
+			}
+
+			// Every token is read, so that the whole document is checked
+			for (JsonToken token = parser.nextToken(); token != JsonToken.END_OBJECT; token = parser.nextToken()) {
+				final String fieldName = parser.currentName();
+				token = parser.nextToken();
+
+				if ("id".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+					id = parser.getText();
+				}
+				else {
+					// Skipping still reads the nested tokens, without building their values
+					parser.skipChildren();
+				}
+			}
+
+			if (parser.nextToken() != null) {
+				throw new IOException("Trailing content after the factory model document.");
+			}
+		}
+
+		if (id == null) {
+			throw new IOException("Factory model without identifier.");
+		}
+
+		return id;
+	}
+
+	private static ObjectMapper newTypedMapper() {
+		final PolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+				.allowIfSubType("fr.tp.inf112.projects.robotsim.model")
+				.allowIfSubType("fr.tp.inf112.projects.canvas.model")
+				.allowIfSubType("java.util")
+				.build();
+		final ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.activateDefaultTyping(typeValidator, ObjectMapper.DefaultTyping.NON_FINAL);
+		registerAccelerationModule(objectMapper);
+
+		return objectMapper;
+	}
+
+	private static void registerAccelerationModule(final ObjectMapper objectMapper) {
+		if (!Boolean.parseBoolean(System.getProperty(ACCELERATION_PROPERTY, "true"))) {
+			return;
+		}
+
+		for (final String moduleClassName : ACCELERATION_MODULE_CLASS_NAMES) {
+			try {
+				// Looked up reflectively as the modules are optional dependencies
+				objectMapper.registerModule((Module) Class.forName(moduleClassName).getConstructor().newInstance());
+				LOGGER.config("Registered JSON acceleration module " + moduleClassName);
+
+				return;
+			}
+			catch (final ReflectiveOperationException | LinkageError ex) {
+				LOGGER.log(Level.FINE, "JSON acceleration module " + moduleClassName + " is not available.", ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.canvas.controller.Observer;
+
+/**
+ * Collects the changes of the components of a factory and delivers them to
+ * the factory observers as a single {@link FactoryChangeEvent} per frame,
+ * however many changes were made during the frame. Deliveries happen on a
+ * scheduler thread shared by all the factories.
+ */
+class NotificationCoalescer {
+
+	private static final Logger LOGGER = Logger.getLogger(NotificationCoalescer.class.getName());
+
+	static final int DEFAULT_FRAME_RATE = 60;
+
+	private static ScheduledExecutorService deliveryScheduler;
+
+	private final Factory factory;
+
+	private final long framePeriod;
+
+	private Map<Component, Set<ChangeKind>> changes;
+
+	private boolean deliveryScheduled;
+
+	private long lastDeliveryTime;
+
+	/**
+	 * @param frameRate the maximum number of notifications per second, or zero
+	 * to notify the observers synchronously on each change.
+	 */
+	NotificationCoalescer(final Factory factory,
+						  final int frameRate) {
+		if (frameRate < 0) {
+			throw new IllegalArgumentException("Negative frame rate: " + frameRate);
+		}
+
+		this.factory = factory;
+		framePeriod = frameRate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / frameRate;
+		changes = new IdentityHashMap<>();
+		deliveryScheduled = false;
+		lastDeliveryTime = System.nanoTime() - framePeriod;
+	}
+
+	void componentChanged(final Component component,
+						  final ChangeKind kind) {
+		if (framePeriod == 0) {
+			final Map<Component, Set<ChangeKind>> componentChanges = new IdentityHashMap<>();
+			componentChanges.put(component, EnumSet.of(kind));
+			deliver(componentChanges);
+
+			return;
+		}
+
+		final long delay;
+
+		synchronized (this) {
+			changes.computeIfAbsent(component, changedComponent -> EnumSet.noneOf(ChangeKind.class)).add(kind);
+
+			if (deliveryScheduled) {
+				return;
+			}
+
+			deliveryScheduled = true;
+			// Read under the lock the delivery time is written under
+			delay = lastDeliveryTime + framePeriod - System.nanoTime();
+		}
+
+		getDeliveryScheduler().schedule(this::deliverChanges, Math.max(0, delay), TimeUnit.NANOSECONDS);
+	}
+
+	private void deliverChanges() {
+		final Map<Component, Set<ChangeKind>> deliveredChanges;
+
+		synchronized (this) {
+			deliveredChanges = changes;
+			changes = new IdentityHashMap<>();
+			deliveryScheduled = false;
+			lastDeliveryTime = System.nanoTime();
+		}
+
+		deliver(deliveredChanges);
+	}
+
+	private void deliver(final Map<Component, Set<ChangeKind>> deliveredChanges) {
+		final FactoryChangeEvent event = new FactoryChangeEvent(factory, deliveredChanges);
+
+		for (final Observer observer : factory.getObservers()) {
+			try {
+				if (observer instanceof FactoryChangeObserver) {
+					((FactoryChangeObserver) observer).factoryChanged(event);
+				}
+				else {
+					observer.modelChanged();
+				}
+			}
+			catch (final RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Observer " + observer + " failed to handle a change of the factory.", ex);
+			}
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getDeliveryScheduler() {
+		if (deliveryScheduler == null) {
+			deliveryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "Factory notifications");
+				thread.setDaemon(true);
+
+				return thread;
+			});
+		}
+
+		return deliveryScheduler;
+	}
+}
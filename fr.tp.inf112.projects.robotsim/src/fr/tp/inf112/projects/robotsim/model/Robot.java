@@ -1,6 +1,7 @@
 package fr.tp.inf112.projects.robotsim.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -13,17 +14,20 @@ import fr.tp.inf112.projects.canvas.model.Style;
 import fr.tp.inf112.projects.canvas.model.impl.RGBColor;
 import fr.tp.inf112.projects.robotsim.model.motion.Motion;
 import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.simulation.TwoPhaseBehaviour;
 import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 
-public class Robot extends Component {
+public class Robot extends Component implements TwoPhaseBehaviour {
 	
 	private static final long serialVersionUID = -1218857231970296747L;
 
 	private static final Style STYLE = new ComponentStyle(RGBColor.GREEN, RGBColor.BLACK, 3.0f, null);
 
 	private static final Style BLOCKED_STYLE = new ComponentStyle(RGBColor.RED, RGBColor.BLACK, 3.0f, new float[]{4.0f});
+
+	private static final int BLOCKED_FLAG = 1;
 	
 	private final Battery battery;
 	
@@ -37,11 +41,34 @@ public class Robot extends Component {
 	private Component currTargetComponent;
 	
 	@JsonIgnore
-	private transient Iterator<Position> currentPathPositionsIter;
+	private transient List<Position> currentPathPositions;
+	
+	// Index of the first position of the current path the robot did not plan to move to yet
+	@JsonIgnore
+	private transient int currentPathIndex;
+	
+	// Set by the planning when the current path has no more position, the robot being blocked on commit
+	@JsonIgnore
+	private transient boolean currentPathEnded;
+	
+	// Target and factory topology version the current path was computed for
+	@JsonIgnore
+	private transient Component currentPathTargetComponent;
+	
+	@JsonIgnore
+	private transient long currentPathTopologyVersion;
 	
 	@JsonIgnore
 	private transient boolean blocked;
 	
+	// Position the robot waited for at its last commit, which the other robots read while planning in parallel
+	@JsonIgnore
+	private transient Position waitedPosition;
+	
+	// Set by the planning when the robot steps aside out of a live lock instead of following its path
+	@JsonIgnore
+	private transient boolean steppingAside;
+	
 	private Position nextPosition;
 	
 	private FactoryPathFinder pathFinder;
@@ -81,7 +108,7 @@ public class Robot extends Component {
 		
 		targetComponents = new ArrayList<>();
 		currTargetComponent = null;
-		currentPathPositionsIter = null;
+		currentPathPositions = null;
 		speed = 5;
 		blocked = false;
 		nextPosition = null;
@@ -97,12 +124,17 @@ public class Robot extends Component {
         return battery;
     }
 
-//	@JsonProperty
-	protected int getSpeed() {
+	/**
+	 * @return the distance the robot travels along its path in a behaviour,
+	 * the robot moving at least to the next position of its path.
+	 */
+	@JsonIgnore
+	public int getSpeed() {
 		return speed;
 	}
-//	@JsonProperty
-	protected void setSpeed(final int speed) {
+	
+	@JsonIgnore
+	public void setSpeed(final int speed) {
 		this.speed = speed;
 	}
 	
@@ -123,24 +155,91 @@ public class Robot extends Component {
 		return getTargetComponents().remove(targetComponent);
 	}
 	
+	public boolean hasTargetComponents() {
+		return !getTargetComponents().isEmpty();
+	}
+	
 	@Override
 	public boolean isMobile() {
 		return true;
 	}
+	
+	@Override
+	public boolean isActive() {
+		return true;
+	}
 
 	@Override
 	public boolean behave() {
+		final Motion motion = planMotion();
+		
+		return commitMotion(motion, motion != null);
+	}
+	
+	@Override
+	public Motion planMotion() {
+		currentPathEnded = false;
+		steppingAside = false;
+		
 		if (getTargetComponents().isEmpty()) {
-			return false;
+			return null;
 		}
 		
 		if (currTargetComponent == null || hasReachedCurrentTarget()) {
 			currTargetComponent = nextTargetComponentToVisit();
 		}
 		
-		computePathToCurrentTargetComponent();
+		if (isCurrentPathOutdated()) {
+			computePathToCurrentTargetComponent();
+		}
 
-		return moveToNextPathPosition() != 0;
+		final Motion motion = computeMotion();
+		
+		if (motion == null && isLivelyLocked()) {
+			return planStepAside();
+		}
+		
+		return motion;
+	}
+	
+	@Override
+	public boolean commitMotion(final Motion motion,
+								final boolean granted) {
+		if (granted && motion != null && moveTo(motion)) {
+			if (steppingAside) {
+				// A new path is found from there by the next planning
+				currentPathPositions = null;
+			}
+			else {
+				// The path positions passed through were planned in the same motion
+				currentPathIndex += motion.getWaypoints().size();
+			}
+			
+			waitedPosition = null;
+			
+			return true;
+		}
+		
+		waitedPosition = nextPosition;
+		
+		if (currentPathEnded) {
+			setBlocked(true);
+		}
+		
+		return false;
+	}
+	
+	// Planned as any other motion, so that stepping aside is denied if another component claims the same position
+	private Motion planStepAside() {
+		final Position freeNeighbouringPosition = findFreeNeighbouringPosition();
+		
+		if (freeNeighbouringPosition == null) {
+			return null;
+		}
+		
+		steppingAside = true;
+		
+		return new Motion(getPosition(), freeNeighbouringPosition);
 	}
 		
 	private Component nextTargetComponentToVisit() {
@@ -152,27 +251,25 @@ public class Robot extends Component {
 	}
 	
 	
-	private int moveToNextPathPosition() {
-	    final Motion motion = computeMotion();
-
-	    // Step 1: Determine displacement
-	    final int displacement = motion == null ? 0 : motion.moveToTarget();
-
-	    if (displacement != 0) {
-	        // Notify observers if the robot has moved
-	        notifyObservers();
-	    } else if (isLivelyLocked()) {
-	        // Step 2: Handle livelock
-	        final Position freeNeighbouringPositions = findFreeNeighbouringPosition();
-
-	        if (freeNeighbouringPositions != null) {
-	            nextPosition = freeNeighbouringPositions; // Move to free position
-	            moveToNextPathPosition(); // Retry moving
-	            computePathToCurrentTargetComponent(); // Recompute path
-	        }
-	    }
-
-	    return displacement;
+	private boolean moveTo(final Motion motion) {
+		if (motion.moveToTarget() == 0) {
+			return false;
+		}
+		
+		nextPosition = null;
+		getFactory().componentMoved(this);
+		notifyObservers(ChangeKind.POSITION);
+		setBlocked(false);
+		
+		return true;
+	}
+	
+	private void setBlocked(final boolean blocked) {
+		if (this.blocked != blocked) {
+			this.blocked = blocked;
+			
+			notifyObservers(ChangeKind.STYLE);
+		}
 	}
 	
 	private Position findFreeNeighbouringPosition() {
@@ -189,28 +286,66 @@ public class Robot extends Component {
 
 
 	
+	private boolean isCurrentPathOutdated() {
+		return currentPathPositions == null || 
+			   currentPathTargetComponent != currTargetComponent ||
+			   currentPathTopologyVersion != getFactory().getTopologyVersion();
+	}
+	
 	private void computePathToCurrentTargetComponent() {
-		final List<Position> currentPathPositions = pathFinder.findPath(this, currTargetComponent);
-		currentPathPositionsIter = currentPathPositions.iterator();
+		currentPathTopologyVersion = getFactory().getTopologyVersion();
+		currentPathTargetComponent = currTargetComponent;
+		
+		currentPathPositions = pathFinder.findPath(this, currTargetComponent);
+		currentPathIndex = 0;
 	}
 	
 	
+	// Motion to the next position of the path, which is kept until the robot moves to it so that a blocked motion is retried,
+	// then through the following positions while the speed allows, so that the whole motion is planned and granted at once
 	private Motion computeMotion() {
-	    if (!currentPathPositionsIter.hasNext()) {
-	        blocked = true;
+	    currentPathEnded = currentPathIndex >= currentPathPositions.size();
+	    
+	    if (currentPathEnded) {
 	        return null;
 	    }
 
-	    final Position nextPosition = this.nextPosition == null ? currentPathPositionsIter.next() : this.nextPosition;
-	  
+	    if (nextPosition == null) {
+	        nextPosition = currentPathPositions.get(currentPathIndex++);
+	    }
 
-	    if (getFactory().moveComponent(new Motion(getPosition(), nextPosition), this) == 0) {
-	        this.nextPosition = nextPosition; // Save the blocked position for retry
+	    if (hasObstacleAt(nextPosition)) {
 	        return null;
 	    }
+	    
+	    List<Position> waypoints = Collections.emptyList();
+	    Position targetPosition = nextPosition;
+	    int distance = Motion.distance(getPosition(), nextPosition);
+	    
+	    for (int index = currentPathIndex; index < currentPathPositions.size(); index++) {
+	        final Position position = currentPathPositions.get(index);
+	        distance += Motion.distance(targetPosition, position);
+	        
+	        if (distance > speed || hasObstacleAt(position)) {
+	            break;
+	        }
+	        
+	        if (waypoints.isEmpty()) {
+	            waypoints = new ArrayList<>();
+	        }
+	        
+	        waypoints.add(targetPosition);
+	        targetPosition = position;
+	    }
 
-	    this.nextPosition = null;
-	    return new Motion(getPosition(), nextPosition);
+	    return new Motion(getPosition(), waypoints, targetPosition);
+	}
+	
+	private boolean hasObstacleAt(final Position position) {
+	    return getFactory().hasObstacleAt(new RectangularShape(position.getxCoordinate(),
+	                                                           position.getyCoordinate(),
+	                                                           2,
+	                                                           2));
 	}
 
 	
@@ -222,6 +357,22 @@ public class Robot extends Component {
 		return this.nextPosition;
 	}
 	
+	@JsonIgnore
+	public FactoryPathFinder getPathFinder() {
+		return pathFinder;
+	}
+	
+	@JsonIgnore
+	public void setPathFinder(final FactoryPathFinder pathFinder) {
+		this.pathFinder = pathFinder;
+		currentPathPositions = null;
+	}
+	
+	@JsonIgnore
+	public boolean isBlocked() {
+		return blocked;
+	}
+	
 	@Override
 	public boolean canBeOverlayed(final PositionedShape shape) {
 		return true;
@@ -232,6 +383,16 @@ public class Robot extends Component {
 		return blocked ? BLOCKED_STYLE : STYLE;
 	}
 	
+	@Override
+	public int getStateFlags() {
+		return blocked ? BLOCKED_FLAG : 0;
+	}
+	
+	@Override
+	protected void setStateFlags(final int stateFlags) {
+		setBlocked((stateFlags & BLOCKED_FLAG) != 0);
+	}
+	
 	@JsonIgnore
 	public boolean isLivelyLocked() {
 		final Position nextPosition = getNextPosition();
@@ -248,8 +409,9 @@ public class Robot extends Component {
 	        // No other robot at the next position
 	        return false;
 	    }
-	    // Step 3: Check if the other robot is targeting this robot's position
-	    return getPosition().equals(((Robot) otherRobot).getNextPosition());
+	    // Step 3: Check if the other robot waited for this robot's position, as set at its last commit so that it does not
+	    // change while the robots plan their motions in parallel
+	    return getPosition().equals(((Robot) otherRobot).waitedPosition);
 		
 	}
 }
@@ -82,6 +82,14 @@ public class Room extends Component {
 		return doors;
 	}
 
+	@Override
+	public PositionedShape getBounds() {
+		return new RectangularShape(getxCoordinate(),
+									getyCoordinate(),
+									getWidth() + WALL_THICKNESS,
+									getHeight() + WALL_THICKNESS);
+	}
+
 	@Override
 	public boolean overlays(final PositionedShape shape) {
 		return leftWall.overlays(shape) || rightWall.overlays(shape) || 
@@ -0,0 +1,227 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+
+/**
+ * Uniform grid of square buckets referencing the components whose bounding box
+ * intersects each bucket. Queries only test the components registered in the
+ * buckets covered by the queried shape, so the predicates they are given still
+ * have to run the exact overlay test on these candidates. Queries only take a
+ * read lock, so that components planning their moves in parallel do not wait
+ * for each other, and test the candidates in place rather than copying them.
+ */
+class SpatialIndex {
+
+	static final int DEFAULT_CELL_SIZE = 20;
+
+	private final int cellSize;
+
+	private final Map<Long, List<Component>> buckets;
+
+	// Bucket range (min x, min y, max x, max y) each component was indexed with
+	private final Map<Component, int[]> indexedRanges;
+
+	private final Lock readLock;
+
+	private final Lock writeLock;
+
+	SpatialIndex() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	SpatialIndex(final int cellSize) {
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("Cell size must be positive.");
+		}
+
+		this.cellSize = cellSize;
+		buckets = new HashMap<>();
+		indexedRanges = new IdentityHashMap<>();
+
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+		readLock = lock.readLock();
+		writeLock = lock.writeLock();
+	}
+
+	private static long key(final int xCell,
+							final int yCell) {
+		return ((long) xCell << 32) | (yCell & 0xFFFFFFFFL);
+	}
+
+	private int cell(final int coordinate) {
+		return Math.floorDiv(coordinate, cellSize);
+	}
+
+	private int[] range(final PositionedShape shape) {
+		return new int[] { cell(shape.getxCoordinate()),
+						   cell(shape.getyCoordinate()),
+						   cell(shape.getxCoordinate() + shape.getWidth()),
+						   cell(shape.getyCoordinate() + shape.getHeight()) };
+	}
+
+	void add(final Component component) {
+		writeLock.lock();
+
+		try {
+			if (indexedRanges.containsKey(component)) {
+				return;
+			}
+
+			final int[] range = range(component.getBounds());
+			indexedRanges.put(component, range);
+
+			for (int xCell = range[0]; xCell <= range[2]; xCell++) {
+				for (int yCell = range[1]; yCell <= range[3]; yCell++) {
+					buckets.computeIfAbsent(key(xCell, yCell), k -> new ArrayList<>(2)).add(component);
+				}
+			}
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	boolean remove(final Component component) {
+		writeLock.lock();
+
+		try {
+			final int[] range = indexedRanges.remove(component);
+
+			if (range == null) {
+				return false;
+			}
+
+			for (int xCell = range[0]; xCell <= range[2]; xCell++) {
+				for (int yCell = range[1]; yCell <= range[3]; yCell++) {
+					final Long key = key(xCell, yCell);
+					final List<Component> bucket = buckets.get(key);
+
+					if (bucket != null) {
+						bucket.remove(component);
+
+						if (bucket.isEmpty()) {
+							buckets.remove(key);
+						}
+					}
+				}
+			}
+
+			return true;
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	void update(final Component component) {
+		writeLock.lock();
+
+		try {
+			final int[] indexedRange = indexedRanges.get(component);
+
+			if (indexedRange != null && Arrays.equals(indexedRange, range(component.getBounds()))) {
+				return;
+			}
+
+			remove(component);
+			add(component);
+		}
+		finally {
+			writeLock.unlock();
+		}
+	}
+
+	boolean contains(final Component component) {
+		readLock.lock();
+
+		try {
+			return indexedRanges.containsKey(component);
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Tests the components registered in the buckets covered by the shape,
+	 * each one once, under the read lock. The predicate must therefore not
+	 * modify the index.
+	 * 
+	 * @return the first tested component matching the predicate, or
+	 * <code>null</code> if there is none.
+	 */
+	Component find(final PositionedShape shape,
+				   final Predicate<Component> predicate) {
+		readLock.lock();
+
+		try {
+			final int[] range = range(shape);
+
+			for (int xCell = range[0]; xCell <= range[2]; xCell++) {
+				for (int yCell = range[1]; yCell <= range[3]; yCell++) {
+					final List<Component> bucket = buckets.get(key(xCell, yCell));
+
+					if (bucket != null) {
+						for (final Component component : bucket) {
+							if (isFirstCommonCell(indexedRanges.get(component), range, xCell, yCell) &&
+								predicate.test(component)) {
+								return component;
+							}
+						}
+					}
+				}
+			}
+
+			return null;
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Same as {@link #find(PositionedShape, Predicate)} for the components
+	 * registered in the bucket of the position.
+	 */
+	Component find(final Position position,
+				   final Predicate<Component> predicate) {
+		readLock.lock();
+
+		try {
+			final List<Component> bucket = buckets.get(key(cell(position.getxCoordinate()), cell(position.getyCoordinate())));
+
+			if (bucket != null) {
+				for (final Component component : bucket) {
+					if (predicate.test(component)) {
+						return component;
+					}
+				}
+			}
+
+			return null;
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	// A component registered in several buckets of the queried range is only tested in the first of them
+	private static boolean isFirstCommonCell(final int[] componentRange,
+											 final int[] queriedRange,
+											 final int xCell,
+											 final int yCell) {
+		return xCell == Math.max(componentRange[0], queriedRange[0]) &&
+			   yCell == Math.max(componentRange[1], queriedRange[1]);
+	}
+}
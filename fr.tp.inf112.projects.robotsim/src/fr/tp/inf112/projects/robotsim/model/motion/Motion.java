@@ -1,16 +1,32 @@
 package fr.tp.inf112.projects.robotsim.model.motion;
 
+import java.util.Collections;
+import java.util.List;
+
 import fr.tp.inf112.projects.robotsim.model.Position;
 
 public class Motion {
 	
 	private final Position currentPosition;
 
+	private final List<Position> waypoints;
+
 	private final Position targetPosition;
 
 	public Motion(final Position currentPosition,
 				  final Position targetPosition) {
+		this(currentPosition, Collections.emptyList(), targetPosition);
+	}
+
+	/**
+	 * @param waypoints the positions passed through, in order, on the way to
+	 * the target position.
+	 */
+	public Motion(final Position currentPosition,
+				  final List<Position> waypoints,
+				  final Position targetPosition) {
 		this.currentPosition = currentPosition;
+		this.waypoints = waypoints;
 		this.targetPosition = targetPosition;
 	}
 
@@ -18,14 +34,40 @@ public class Motion {
 		return currentPosition;
 	}
 
+	public List<Position> getWaypoints() {
+		return waypoints;
+	}
+
 	public Position getTargetPosition() {
 		return targetPosition;
 	}
 	
+	/**
+	 * @return the distance from the current position to the target position
+	 * through the waypoints, each leg being rounded to the nearest integer.
+	 */
+	public int getDistance() {
+		int distance = 0;
+		Position position = currentPosition;
+		
+		for (final Position waypoint : waypoints) {
+			distance += distance(position, waypoint);
+			position = waypoint;
+		}
+		
+		return distance + distance(position, targetPosition);
+	}
+	
+	public static int distance(final Position position1,
+							   final Position position2) {
+		final int xDisplacement = Math.abs(position2.getxCoordinate() - position1.getxCoordinate());
+		final int yDisplacement = Math.abs(position2.getyCoordinate() - position1.getyCoordinate());
+		
+		return (int) Math.round(Math.sqrt(xDisplacement * xDisplacement + yDisplacement * yDisplacement));
+	}
+	
 	public int moveToTarget() {
-		final int xDisplacement = Math.abs(targetPosition.getxCoordinate() - currentPosition.getxCoordinate());
-		final int yDisplacement = Math.abs(targetPosition.getyCoordinate() - currentPosition.getyCoordinate());
-		final int displacement = (int) Math.round(Math.sqrt(xDisplacement * xDisplacement + yDisplacement * yDisplacement));
+		final int displacement = getDistance();
 		
 		currentPosition.setxCoordinate(targetPosition.getxCoordinate());
 		currentPosition.setyCoordinate(targetPosition.getyCoordinate());
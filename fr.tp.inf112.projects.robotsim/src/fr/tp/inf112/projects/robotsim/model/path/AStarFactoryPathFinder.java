@@ -0,0 +1,79 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * A* search over the implicit 4-connected grid of the factory, guided by the
+ * Manhattan distance to the target cell. Ties on the estimated path length are
+ * broken in favour of the cells closest to the target.
+ */
+public class AStarFactoryPathFinder extends AbstractGridFactoryPathFinder {
+
+	private static final long serialVersionUID = -5034409960938163713L;
+
+	public AStarFactoryPathFinder(final Factory factoryModel,
+								  final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	static int manhattanDistance(final OccupancyGrid grid,
+								 final int cell1,
+								 final int cell2) {
+		return Math.abs(grid.xIndex(cell1) - grid.xIndex(cell2)) + Math.abs(grid.yIndex(cell1) - grid.yIndex(cell2));
+	}
+
+	@Override
+	boolean search(final OccupancyGrid grid,
+				   final GridSearchSpace searchSpace,
+				   final int sourceCell,
+				   final int targetCell) {
+		final CellPriorityQueue openCells = searchSpace.getOpenCells();
+		final int[] successors = new int[4];
+		final int sourceHeuristic = manhattanDistance(grid, sourceCell, targetCell);
+
+		searchSpace.visit(sourceCell, 0, NO_CELL);
+		openCells.insertOrUpdate(sourceCell, CellPriorityQueue.key(sourceHeuristic, sourceHeuristic));
+
+		while (!openCells.isEmpty()) {
+			final int cell = openCells.poll();
+
+			if (cell == targetCell) {
+				return true;
+			}
+
+			searchSpace.close(cell);
+
+			final int successorsCount = successors(grid, searchSpace, cell, targetCell, successors);
+
+			for (int index = 0; index < successorsCount; index++) {
+				final int successor = successors[index];
+
+				if (searchSpace.isClosed(successor)) {
+					continue;
+				}
+
+				final int distance = searchSpace.getDistance(cell) + manhattanDistance(grid, cell, successor);
+
+				if (distance < searchSpace.getDistance(successor)) {
+					final int heuristic = manhattanDistance(grid, successor, targetCell);
+					searchSpace.visit(successor, distance, cell);
+					openCells.insertOrUpdate(successor, CellPriorityQueue.key(distance + heuristic, heuristic));
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Fills the array with the cells to consider after the given one and
+	 * returns their number. Plain A* considers every free neighbour.
+	 */
+	int successors(final OccupancyGrid grid,
+				   final GridSearchSpace searchSpace,
+				   final int cell,
+				   final int targetCell,
+				   final int[] successors) {
+		return freeNeighbours(grid, cell, successors);
+	}
+}
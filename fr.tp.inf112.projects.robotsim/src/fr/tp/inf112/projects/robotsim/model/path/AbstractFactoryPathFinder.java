@@ -26,6 +26,11 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 	private final int resolution;
 	
 	private transient Graph graph;
+	
+	private transient OccupancyGrid occupancyGrid;
+	
+	// Vertexes indexed by their cell index in the occupancy grid
+	private transient Object[] indexedVertexes;
 
 	public AbstractFactoryPathFinder(final Factory factoryModel,
 									 final int resolution) {
@@ -46,11 +51,23 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 		return graph;
 	}
 	
+	protected OccupancyGrid getOccupancyGrid() {
+		return occupancyGrid;
+	}
+	
+	protected boolean isGraphOutdated() {
+		return getGraph() == null || getOccupancyGrid().isOutdated(getFactoryModel());
+	}
+	
 	protected void buildGraph() {
-		if (getGraph() == null) {
+		if (getGraph() != null && isGraphOutdated()) {
+			updateGraph();
+		}
+		else if (isGraphOutdated()) {
 			graph = newGraph();
-			final int xSize = getFactoryModel().getWidth() / getResolution();
-			final int ySize = getFactoryModel().getHeight() / getResolution();
+			occupancyGrid = getFactoryModel().getOccupancyGrid(getResolution());
+			final int xSize = occupancyGrid.getxSize();
+			final int ySize = occupancyGrid.getySize();
 	
 			for (int xIndex = 0; xIndex < xSize; xIndex++) {
 				for (int yIndex = 0; yIndex < ySize; yIndex++) {
@@ -60,6 +77,8 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 				}
 			}
 			
+			indexVertexes();
+			
 			final Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
 			
 			while (vertexesIterator.hasNext()) {
@@ -75,14 +94,75 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 		}
 	}
 	
+	// Patches the edges entering the cells whose occupancy changed instead of rebuilding the whole graph
+	private void updateGraph() {
+		final OccupancyGrid previousGrid = occupancyGrid;
+		occupancyGrid = getFactoryModel().getOccupancyGrid(getResolution());
+		
+		if (occupancyGrid.getCellCount() != previousGrid.getCellCount()) {
+			graph = null;
+			buildGraph();
+			
+			return;
+		}
+		
+		for (final int cell : occupancyGrid.differingCells(previousGrid)) {
+			final int xIndex = occupancyGrid.xIndex(cell);
+			final int yIndex = occupancyGrid.yIndex(cell);
+			final Vertex vertex = getVertex(xIndex, yIndex);
+			final boolean free = !occupancyGrid.isOccupied(cell);
+			
+			updateEdge(getVertex(xIndex, yIndex - 1), vertex, free);
+			updateEdge(getVertex(xIndex + 1, yIndex), vertex, free);
+			updateEdge(getVertex(xIndex, yIndex + 1), vertex, free);
+			updateEdge(getVertex(xIndex - 1, yIndex), vertex, free);
+		}
+	}
+	
+	private void updateEdge(final Vertex vertex,
+							final Vertex succVertex,
+							final boolean succVertexFree) {
+		if (vertex != null) {
+			if (succVertexFree) {
+				addEdge(vertex, succVertex);
+			}
+			else {
+				removeEdge(vertex, succVertex);
+			}
+		}
+	}
+	
+	private void indexVertexes() {
+		indexedVertexes = new Object[occupancyGrid.getCellCount()];
+		
+		final Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
+		
+		while (vertexesIterator.hasNext()) {
+			final Vertex vertex = vertexesIterator.next();
+			final int xIndex = getxCoordinate(vertex) / getResolution();
+			final int yIndex = getyCoordinate(vertex) / getResolution();
+			
+			indexedVertexes[occupancyGrid.cellIndex(xIndex, yIndex)] = vertex;
+		}
+	}
+	
 	protected abstract Graph newGraph();
 
 	protected abstract boolean addVertex(int xCoordinate,
 										 int yCoordinate);
 
+	/**
+	 * @return <code>false</code> if the graph already has this edge.
+	 */
 	protected abstract boolean addEdge(Vertex vertex1,
 									   Vertex vertex2);
 	
+	/**
+	 * @return <code>false</code> if the graph has no such edge.
+	 */
+	protected abstract boolean removeEdge(Vertex vertex1,
+										  Vertex vertex2);
+	
 	protected abstract int getxCoordinate(Vertex vertex);
 
 	protected abstract int getyCoordinate(Vertex vertex);
@@ -191,45 +271,61 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 	
 	protected Vertex getFreeVertex(final int xIndex,
 								   final int yIndex) {
-		final int resolution = getResolution();
-		final int xCoordinate = xIndex * resolution;
-		final int yCoordinate = yIndex * resolution;
-		
-		final PositionedShape shape = new RectangularShape(xCoordinate, yCoordinate, resolution, resolution);
-		
-		if (!getFactoryModel().hasObstacleAt(shape)) {
+		if (getOccupancyGrid().isFree(xIndex, yIndex)) {
 			return getVertex(xIndex, yIndex);
 		}
 		
 		return null;
 	}
 	
-	protected abstract Vertex getVertex(final int xIndex,
-								 		final int yIndex);
+	@SuppressWarnings("unchecked")
+	protected Vertex getVertex(final int xIndex,
+							   final int yIndex) {
+		if (xIndex < 0 || xIndex >= occupancyGrid.getxSize() || yIndex < 0 || yIndex >= occupancyGrid.getySize()) {
+			return null;
+		}
+		
+		return (Vertex) indexedVertexes[occupancyGrid.cellIndex(xIndex, yIndex)];
+	}
 	
 	protected Vertex getVertex(final Position position) {
+		final int xIndex = occupancyGrid.xIndexOf(position.getxCoordinate());
+		final int yIndex = occupancyGrid.yIndexOf(position.getyCoordinate());
+		
+		if (!isOnCellBoundary(position.getxCoordinate()) && !isOnCellBoundary(position.getyCoordinate())) {
+			return getVertex(xIndex, yIndex);
+		}
+		
+		// The position is half way between cells: compare the overlayed surfaces of the neighbouring vertexes
 		float currentMaxOverlayedSurface = 0.0f;
-		Vertex maxOverlayedSurfaceVertex = null; 
+		Vertex maxOverlayedSurfaceVertex = getVertex(xIndex, yIndex); 
 		final PositionedShape shape = new RectangularShape(position.getxCoordinate(), 
 														   position.getyCoordinate(),
 														   resolution,
 														   resolution);
 		
-		final  Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
-		
-		while (vertexesIterator.hasNext()) {
-			final Vertex vertex = vertexesIterator.next();
-			final float overlayedSurface = overlayedSurface(vertex, shape);
-			
-			if (overlayedSurface  > currentMaxOverlayedSurface) {
-				currentMaxOverlayedSurface = overlayedSurface;
-				maxOverlayedSurfaceVertex = vertex;
+		for (int neighbourxIndex = xIndex - 1; neighbourxIndex <= xIndex + 1; neighbourxIndex++) {
+			for (int neighbouryIndex = yIndex - 1; neighbouryIndex <= yIndex + 1; neighbouryIndex++) {
+				final Vertex vertex = getVertex(neighbourxIndex, neighbouryIndex);
+				
+				if (vertex != null) {
+					final float overlayedSurface = overlayedSurface(vertex, shape);
+					
+					if (overlayedSurface  > currentMaxOverlayedSurface) {
+						currentMaxOverlayedSurface = overlayedSurface;
+						maxOverlayedSurfaceVertex = vertex;
+					}
+				}
 			}
 		}
 		
 		return maxOverlayedSurfaceVertex;
 	}
 	
+	private boolean isOnCellBoundary(final int coordinate) {
+		return 2 * Math.floorMod(coordinate, resolution) == resolution;
+	}
+	
 	protected abstract float overlayedSurface(Vertex vertex, 
 											  PositionedShape shape);
 	
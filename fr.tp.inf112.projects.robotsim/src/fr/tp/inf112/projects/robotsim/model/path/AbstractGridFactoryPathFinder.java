@@ -0,0 +1,140 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Base class of the path finders searching the factory grid implicitly: cells
+ * are int indexes into the {@link OccupancyGrid} shared by the whole factory
+ * and no vertex or edge object is ever created. Search state lives in
+ * per-thread scratch arrays, so a single instance can be shared by all the
+ * robots of a factory.
+ */
+public abstract class AbstractGridFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = -2470318823531316584L;
+
+	static final int NO_CELL = -1;
+
+	private final Factory factoryModel;
+
+	private final int resolution;
+
+	public AbstractGridFactoryPathFinder(final Factory factoryModel,
+										 final int resolution) {
+		this.factoryModel = factoryModel;
+		this.resolution = resolution;
+	}
+
+	public Factory getFactoryModel() {
+		return factoryModel;
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	protected OccupancyGrid getOccupancyGrid() {
+		return getFactoryModel().getOccupancyGrid(getResolution());
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		final OccupancyGrid grid = getOccupancyGrid();
+
+		if (grid.getCellCount() == 0) {
+			return new ArrayList<>();
+		}
+
+		final int sourceCell = grid.cellOf(sourceComponent.getPosition());
+		final int targetCell = grid.cellOf(targetComponent.getPosition());
+
+		if (sourceCell == targetCell) {
+			return new ArrayList<>();
+		}
+
+		if (grid.isOccupied(targetCell)) {
+			return new ArrayList<>();
+		}
+
+		return findPath(grid, sourceComponent, sourceCell, targetCell);
+	}
+
+	List<Position> findPath(final OccupancyGrid grid,
+							final Component sourceComponent,
+							final int sourceCell,
+							final int targetCell) {
+		final GridSearchSpace searchSpace = GridSearchSpace.acquire(grid.getCellCount());
+
+		try {
+			if (!search(grid, searchSpace, sourceCell, targetCell)) {
+				return new ArrayList<>();
+			}
+
+			return toPositions(grid, searchSpace, sourceCell, targetCell);
+		}
+		finally {
+			GridSearchSpace.release(searchSpace);
+		}
+	}
+
+	/**
+	 * Searches a shortest path between the two cells, recording in the search
+	 * space the parent of each cell of the path.
+	 *
+	 * @return <code>true</code> if the target cell was reached.
+	 */
+	abstract boolean search(OccupancyGrid grid,
+							GridSearchSpace searchSpace,
+							int sourceCell,
+							int targetCell);
+
+	List<Position> toPositions(final OccupancyGrid grid,
+							   final GridSearchSpace searchSpace,
+							   final int sourceCell,
+							   final int targetCell) {
+		final List<Position> positions = new ArrayList<>(searchSpace.getDistance(targetCell));
+
+		for (int cell = targetCell; cell != sourceCell; cell = searchSpace.getParent(cell)) {
+			positions.add(grid.getPosition(cell));
+		}
+
+		Collections.reverse(positions);
+
+		return positions;
+	}
+
+	// Fills the array with the free 4-connected neighbours of the cell and returns their number
+	static int freeNeighbours(final OccupancyGrid grid,
+							  final int cell,
+							  final int[] neighbours) {
+		final int xIndex = grid.xIndex(cell);
+		final int yIndex = grid.yIndex(cell);
+		int count = 0;
+
+		if (yIndex > 0 && !grid.isOccupied(cell - grid.getxSize())) {
+			neighbours[count++] = cell - grid.getxSize();
+		}
+
+		if (xIndex + 1 < grid.getxSize() && !grid.isOccupied(cell + 1)) {
+			neighbours[count++] = cell + 1;
+		}
+
+		if (yIndex + 1 < grid.getySize() && !grid.isOccupied(cell + grid.getxSize())) {
+			neighbours[count++] = cell + grid.getxSize();
+		}
+
+		if (xIndex > 0 && !grid.isOccupied(cell - 1)) {
+			neighbours[count++] = cell - 1;
+		}
+
+		return count;
+	}
+}
@@ -0,0 +1,149 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Decorates a path finder with a least recently used cache of the paths found
+ * between two grid cells. The whole cache is dropped as soon as the topology
+ * version of the factory changes, e.g. when a door is opened or closed.
+ */
+public class CachingFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = -3185093740466357327L;
+
+	private static final int DEFAULT_MAX_ENTRIES = 1024;
+
+	private final FactoryPathFinder pathFinder;
+
+	private final Factory factoryModel;
+
+	private final int resolution;
+
+	private final int maxEntries;
+
+	private transient Map<CellPair, List<Position>> cachedPaths;
+
+	private transient long cachedTopologyVersion;
+
+	public CachingFactoryPathFinder(final FactoryPathFinder pathFinder,
+									final Factory factoryModel,
+									final int resolution) {
+		this(pathFinder, factoryModel, resolution, DEFAULT_MAX_ENTRIES);
+	}
+
+	public CachingFactoryPathFinder(final FactoryPathFinder pathFinder,
+									final Factory factoryModel,
+									final int resolution,
+									final int maxEntries) {
+		this.pathFinder = pathFinder;
+		this.factoryModel = factoryModel;
+		this.resolution = resolution;
+		this.maxEntries = maxEntries;
+		cachedPaths = null;
+	}
+
+	public FactoryPathFinder getPathFinder() {
+		return pathFinder;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		final long topologyVersion = factoryModel.getTopologyVersion();
+		final CellPair cells = new CellPair(sourceComponent.getPosition(), targetComponent.getPosition(), resolution);
+
+		synchronized (this) {
+			final Map<CellPair, List<Position>> paths = getCachedPaths(topologyVersion);
+			final List<Position> path = paths.get(cells);
+
+			if (path != null) {
+				return path;
+			}
+		}
+
+		final List<Position> path = Collections.unmodifiableList(pathFinder.findPath(sourceComponent, targetComponent));
+
+		synchronized (this) {
+			// Do not cache a path found while the topology was changing
+			if (topologyVersion == factoryModel.getTopologyVersion()) {
+				getCachedPaths(topologyVersion).put(cells, path);
+			}
+		}
+
+		return path;
+	}
+
+	private Map<CellPair, List<Position>> getCachedPaths(final long topologyVersion) {
+		if (cachedPaths == null) {
+			cachedPaths = new LinkedHashMap<CellPair, List<Position>>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<CellPair, List<Position>> eldest) {
+					return size() > maxEntries;
+				}
+			};
+			cachedTopologyVersion = topologyVersion;
+		}
+		else if (cachedTopologyVersion != topologyVersion) {
+			cachedPaths.clear();
+			cachedTopologyVersion = topologyVersion;
+		}
+
+		return cachedPaths;
+	}
+
+	// Source and target cells, using the same best overlay rounding as the path finders
+	private static final class CellPair {
+
+		private final int sourcexIndex;
+
+		private final int sourceyIndex;
+
+		private final int targetxIndex;
+
+		private final int targetyIndex;
+
+		private CellPair(final Position sourcePosition,
+						 final Position targetPosition,
+						 final int resolution) {
+			sourcexIndex = toIndex(sourcePosition.getxCoordinate(), resolution);
+			sourceyIndex = toIndex(sourcePosition.getyCoordinate(), resolution);
+			targetxIndex = toIndex(targetPosition.getxCoordinate(), resolution);
+			targetyIndex = toIndex(targetPosition.getyCoordinate(), resolution);
+		}
+
+		private static int toIndex(final int coordinate,
+								   final int resolution) {
+			final int index = Math.floorDiv(coordinate, resolution);
+
+			return 2 * (coordinate - index * resolution) > resolution ? index + 1 : index;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof CellPair)) {
+				return false;
+			}
+
+			final CellPair cells = (CellPair) object;
+
+			return sourcexIndex == cells.sourcexIndex && sourceyIndex == cells.sourceyIndex &&
+				   targetxIndex == cells.targetxIndex && targetyIndex == cells.targetyIndex;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((sourcexIndex * 31 + sourceyIndex) * 31 + targetxIndex) * 31 + targetyIndex;
+		}
+	}
+}
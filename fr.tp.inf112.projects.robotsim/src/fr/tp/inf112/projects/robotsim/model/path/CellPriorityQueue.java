@@ -0,0 +1,171 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.Arrays;
+
+/**
+ * Indexed binary min-heap of grid cells ordered by a long key. Each cell is in
+ * the queue at most once, so its key can be decreased or increased in place.
+ */
+final class CellPriorityQueue {
+
+	private static final int ABSENT = -1;
+
+	private final int[] heap;
+
+	private final int[] heapIndexes;
+
+	private final long[] keys;
+
+	private int size;
+
+	CellPriorityQueue(final int cellCount) {
+		heap = new int[cellCount];
+		heapIndexes = new int[cellCount];
+		keys = new long[cellCount];
+		size = 0;
+
+		Arrays.fill(heapIndexes, ABSENT);
+	}
+
+	// Packs two non negative ints into a key ordering them lexicographically
+	static long key(final int primaryKey,
+					final int secondaryKey) {
+		return ((long) primaryKey << 32) | (secondaryKey & 0xFFFFFFFFL);
+	}
+
+	void clear() {
+		for (int index = 0; index < size; index++) {
+			heapIndexes[heap[index]] = ABSENT;
+		}
+
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean contains(final int cell) {
+		return heapIndexes[cell] != ABSENT;
+	}
+
+	long getKey(final int cell) {
+		return keys[cell];
+	}
+
+	int peek() {
+		return heap[0];
+	}
+
+	long peekKey() {
+		return keys[heap[0]];
+	}
+
+	void insertOrUpdate(final int cell,
+						final long key) {
+		final int heapIndex = heapIndexes[cell];
+
+		if (heapIndex == ABSENT) {
+			keys[cell] = key;
+			heap[size] = cell;
+			heapIndexes[cell] = size;
+			siftUp(size++);
+		}
+		else {
+			final long previousKey = keys[cell];
+			keys[cell] = key;
+
+			if (key < previousKey) {
+				siftUp(heapIndex);
+			}
+			else {
+				siftDown(heapIndex);
+			}
+		}
+	}
+
+	int poll() {
+		final int cell = heap[0];
+		removeAt(0);
+
+		return cell;
+	}
+
+	boolean remove(final int cell) {
+		final int heapIndex = heapIndexes[cell];
+
+		if (heapIndex == ABSENT) {
+			return false;
+		}
+
+		removeAt(heapIndex);
+
+		return true;
+	}
+
+	private void removeAt(final int heapIndex) {
+		heapIndexes[heap[heapIndex]] = ABSENT;
+		size--;
+
+		if (heapIndex < size) {
+			final int lastCell = heap[size];
+			heap[heapIndex] = lastCell;
+			heapIndexes[lastCell] = heapIndex;
+			siftDown(heapIndex);
+			siftUp(heapIndexes[lastCell]);
+		}
+	}
+
+	private void siftUp(int heapIndex) {
+		final int cell = heap[heapIndex];
+		final long key = keys[cell];
+
+		while (heapIndex > 0) {
+			final int parentIndex = (heapIndex - 1) >>> 1;
+			final int parentCell = heap[parentIndex];
+
+			if (keys[parentCell] <= key) {
+				break;
+			}
+
+			heap[heapIndex] = parentCell;
+			heapIndexes[parentCell] = heapIndex;
+			heapIndex = parentIndex;
+		}
+
+		heap[heapIndex] = cell;
+		heapIndexes[cell] = heapIndex;
+	}
+
+	private void siftDown(int heapIndex) {
+		final int cell = heap[heapIndex];
+		final long key = keys[cell];
+
+		while (true) {
+			int childIndex = 2 * heapIndex + 1;
+
+			if (childIndex >= size) {
+				break;
+			}
+
+			if (childIndex + 1 < size && keys[heap[childIndex + 1]] < keys[heap[childIndex]]) {
+				childIndex++;
+			}
+
+			if (keys[heap[childIndex]] >= key) {
+				break;
+			}
+
+			heap[heapIndex] = heap[childIndex];
+			heapIndexes[heap[heapIndex]] = heapIndex;
+			heapIndex = childIndex;
+		}
+
+		heap[heapIndex] = cell;
+		heapIndexes[cell] = heapIndex;
+	}
+}
@@ -0,0 +1,43 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Path finder counting the searches requested to the path finder it decorates,
+ * including those answered from a cache, to measure the search rate of a
+ * simulation.
+ */
+public class CountingFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = 2215748135637306437L;
+
+	private final FactoryPathFinder pathFinder;
+
+	private final AtomicLong searchCount;
+
+	public CountingFactoryPathFinder(final FactoryPathFinder pathFinder) {
+		this.pathFinder = pathFinder;
+		searchCount = new AtomicLong();
+	}
+
+	public FactoryPathFinder getPathFinder() {
+		return pathFinder;
+	}
+
+	public long getSearchCount() {
+		return searchCount.get();
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		searchCount.incrementAndGet();
+
+		return pathFinder.findPath(sourceComponent, targetComponent);
+	}
+}
@@ -6,7 +6,6 @@ import java.util.Iterator;
 import java.util.List;
 
 import fr.tp.inf112.projects.graph.DijkstraAlgorithm;
-import fr.tp.inf112.projects.graph.Edge;
 import fr.tp.inf112.projects.graph.Vertex;
 import fr.tp.inf112.projects.graph.impl.GridEdge;
 import fr.tp.inf112.projects.graph.impl.GridGraph;
@@ -29,8 +28,8 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 	}
 
 	@Override
-	public List<Position> findPath(final Component sourceComponent,
-								   final Component targetComponent) {
+	public synchronized List<Position> findPath(final Component sourceComponent,
+												final Component targetComponent) {
 		buildGraph();
 		
 		final Position sourcePosition = sourceComponent.getPosition();
@@ -57,24 +56,6 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 		return shortestPathPositions;
 	}
 
-	@Override
-	protected SquareVertex getVertex(final int xIndex, 
-									 final int yIndex) {
-		final Iterator<SquareVertex> iterator = getGraphVertexesIterator();
-		final int resolution = getResolution();
-		final Position position = new Position(xIndex * resolution, yIndex * resolution);
-
-		while (iterator.hasNext()) {
-			final SquareVertex squareVertex = iterator.next();
-			
-			if (position.equals(squareVertex.getPosition())) {
-				return squareVertex;
-			}
-		}
-		
-		return null;
-	}
-
 	@Override
 	protected float overlayedSurface(final SquareVertex vertex, 
 									 final PositionedShape shape) {
@@ -89,7 +70,7 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 
 	@Override
 	protected GridGraph newGraph() {
-		return new GridGraph();
+		return new SquareGridGraph();
 	}
 
 	@Override
@@ -106,11 +87,13 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 	@Override
 	protected boolean addEdge(final SquareVertex vertex1,
 							  final SquareVertex vertex2) {
-		final GridGraph graph = getGraph();
-		final Edge edge = new GridEdge(graph, vertex1, vertex2, 1);
-		vertex1.addEdge(edge);
-		
-		return graph.addEdge(edge);
+		return vertex1.addEdge(new GridEdge(getGraph(), vertex1, vertex2, 1));
+	}
+
+	@Override
+	protected boolean removeEdge(final SquareVertex vertex1,
+								 final SquareVertex vertex2) {
+		return vertex1.removeEdge(vertex2);
 	}
 
 	@Override
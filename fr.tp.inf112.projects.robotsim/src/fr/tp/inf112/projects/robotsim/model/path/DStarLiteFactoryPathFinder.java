@@ -0,0 +1,325 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * D* Lite search over the implicit 4-connected grid of the factory. A planner
+ * searching backward from the target is kept for each source component, so
+ * that when doors open or close, or when the component moved along its path,
+ * only the cells whose distance to the target changed are expanded again
+ * instead of searching the whole grid from scratch.
+ * <p>
+ * Each planner holds five arrays of the size of the grid, about 24 bytes per
+ * cell, e.g. 576 KB per component for a 1000 by 600 factory at a resolution
+ * of 5. When the component heads for another target, its planner is reset
+ * rather than allocated again.
+ */
+public class DStarLiteFactoryPathFinder extends AbstractGridFactoryPathFinder {
+
+	private static final long serialVersionUID = -6130542885062409518L;
+
+	private transient Map<Component, Planner> planners;
+
+	public DStarLiteFactoryPathFinder(final Factory factoryModel,
+									  final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	List<Position> findPath(final OccupancyGrid grid,
+							final Component sourceComponent,
+							final int sourceCell,
+							final int targetCell) {
+		final Planner planner = getPlanner(sourceComponent, grid, targetCell);
+		final GridSearchSpace searchSpace = GridSearchSpace.acquire(grid.getCellCount());
+
+		try {
+			synchronized (planner) {
+				if (!planner.canRepair(targetCell)) {
+					planner.reset(grid, targetCell);
+				}
+
+				if (!planner.search(grid, searchSpace, sourceCell)) {
+					return new ArrayList<>();
+				}
+			}
+
+			return toPositions(grid, searchSpace, sourceCell, targetCell);
+		}
+		finally {
+			GridSearchSpace.release(searchSpace);
+		}
+	}
+
+	@Override
+	boolean search(final OccupancyGrid grid,
+				   final GridSearchSpace searchSpace,
+				   final int sourceCell,
+				   final int targetCell) {
+		return new Planner(grid, targetCell).search(grid, searchSpace, sourceCell);
+	}
+
+	private synchronized Planner getPlanner(final Component sourceComponent,
+											final OccupancyGrid grid,
+											final int targetCell) {
+		if (planners == null) {
+			planners = new WeakHashMap<>();
+		}
+
+		Planner planner = planners.get(sourceComponent);
+
+		if (planner == null || planner.getCellCount() != grid.getCellCount()) {
+			planner = new Planner(grid, targetCell);
+			planners.put(sourceComponent, planner);
+		}
+
+		return planner;
+	}
+
+	/**
+	 * Search state kept between the path requests of a component to a target.
+	 * Distances are computed from each cell to the target cell, a move costing
+	 * one when entering a free cell.
+	 */
+	private static final class Planner {
+
+		private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+		private static final long INFINITE_KEY = Long.MAX_VALUE;
+
+		private int targetCell;
+
+		private final int[] distances;
+
+		private final int[] lookaheadDistances;
+
+		private final CellPriorityQueue inconsistentCells;
+
+		private final int[] neighbours;
+
+		private final int[] successors;
+
+		private OccupancyGrid grid;
+
+		private int sourceCell;
+
+		private int keyModifier;
+
+		private Planner(final OccupancyGrid grid,
+						final int targetCell) {
+			distances = new int[grid.getCellCount()];
+			lookaheadDistances = new int[grid.getCellCount()];
+			inconsistentCells = new CellPriorityQueue(grid.getCellCount());
+			neighbours = new int[4];
+			successors = new int[4];
+
+			reset(grid, targetCell);
+		}
+
+		private int getCellCount() {
+			return distances.length;
+		}
+
+		private boolean canRepair(final int targetCell) {
+			return this.targetCell == targetCell && keyModifier < INFINITY;
+		}
+
+		/**
+		 * Forgets the previous search, so that the next one starts from scratch
+		 * towards the given target, reusing the arrays of the planner.
+		 */
+		private void reset(final OccupancyGrid grid,
+						   final int targetCell) {
+			this.grid = grid;
+			this.targetCell = targetCell;
+			sourceCell = NO_CELL;
+			keyModifier = 0;
+
+			Arrays.fill(distances, INFINITY);
+			Arrays.fill(lookaheadDistances, INFINITY);
+			lookaheadDistances[targetCell] = 0;
+			inconsistentCells.clear();
+		}
+
+		/**
+		 * Brings the distances up to date with the grid and the source cell,
+		 * then records in the search space the parents along a shortest path.
+		 */
+		private boolean search(final OccupancyGrid grid,
+							   final GridSearchSpace searchSpace,
+							   final int sourceCell) {
+			if (this.sourceCell == NO_CELL) {
+				this.sourceCell = sourceCell;
+				inconsistentCells.insertOrUpdate(targetCell, key(targetCell));
+			}
+			else {
+				keyModifier += AStarFactoryPathFinder.manhattanDistance(grid, this.sourceCell, sourceCell);
+				this.sourceCell = sourceCell;
+			}
+
+			if (grid != this.grid) {
+				final int[] changedCells = grid.differingCells(this.grid);
+				this.grid = grid;
+
+				for (final int changedCell : changedCells) {
+					final int neighboursCount = neighbours(changedCell, neighbours);
+
+					for (int index = 0; index < neighboursCount; index++) {
+						updateLookaheadDistance(neighbours[index]);
+					}
+				}
+			}
+
+			computeShortestPath();
+
+			return toParents(searchSpace);
+		}
+
+		private void computeShortestPath() {
+			while (!inconsistentCells.isEmpty() &&
+				   (inconsistentCells.peekKey() < key(sourceCell) ||
+					lookaheadDistances[sourceCell] > distances[sourceCell])) {
+				final int cell = inconsistentCells.peek();
+				final long previousKey = inconsistentCells.peekKey();
+				final long key = key(cell);
+
+				if (previousKey < key) {
+					inconsistentCells.insertOrUpdate(cell, key);
+				}
+				else if (distances[cell] > lookaheadDistances[cell]) {
+					distances[cell] = lookaheadDistances[cell];
+					inconsistentCells.remove(cell);
+
+					if (!grid.isOccupied(cell)) {
+						final int neighboursCount = neighbours(cell, neighbours);
+
+						for (int index = 0; index < neighboursCount; index++) {
+							final int neighbour = neighbours[index];
+
+							if (neighbour != targetCell && distances[cell] + 1 < lookaheadDistances[neighbour]) {
+								lookaheadDistances[neighbour] = distances[cell] + 1;
+								updateInconsistentCell(neighbour);
+							}
+						}
+					}
+				}
+				else {
+					distances[cell] = INFINITY;
+					updateLookaheadDistance(cell);
+
+					final int neighboursCount = neighbours(cell, neighbours);
+
+					for (int index = 0; index < neighboursCount; index++) {
+						updateLookaheadDistance(neighbours[index]);
+					}
+				}
+			}
+		}
+
+		// Follows the cells of smallest distance from the source to the target
+		private boolean toParents(final GridSearchSpace searchSpace) {
+			if (lookaheadDistances[sourceCell] >= INFINITY) {
+				return false;
+			}
+
+			int cell = sourceCell;
+			int distance = 0;
+
+			searchSpace.visit(cell, distance, NO_CELL);
+
+			while (cell != targetCell) {
+				final int successorsCount = freeNeighbours(grid, cell, successors);
+				int nextCell = NO_CELL;
+
+				for (int index = 0; index < successorsCount; index++) {
+					final int successor = successors[index];
+
+					if (!searchSpace.isVisited(successor) &&
+						distances[successor] < INFINITY &&
+						(nextCell == NO_CELL || distances[successor] < distances[nextCell])) {
+						nextCell = successor;
+					}
+				}
+
+				if (nextCell == NO_CELL) {
+					return false;
+				}
+
+				searchSpace.visit(nextCell, ++distance, cell);
+				cell = nextCell;
+			}
+
+			return true;
+		}
+
+		private void updateLookaheadDistance(final int cell) {
+			if (cell == targetCell) {
+				return;
+			}
+
+			final int successorsCount = freeNeighbours(grid, cell, successors);
+			int lookaheadDistance = INFINITY;
+
+			for (int index = 0; index < successorsCount; index++) {
+				lookaheadDistance = Math.min(lookaheadDistance, distances[successors[index]] + 1);
+			}
+
+			lookaheadDistances[cell] = Math.min(lookaheadDistance, INFINITY);
+			updateInconsistentCell(cell);
+		}
+
+		private void updateInconsistentCell(final int cell) {
+			if (distances[cell] != lookaheadDistances[cell]) {
+				inconsistentCells.insertOrUpdate(cell, key(cell));
+			}
+			else {
+				inconsistentCells.remove(cell);
+			}
+		}
+
+		private long key(final int cell) {
+			final int distance = Math.min(distances[cell], lookaheadDistances[cell]);
+
+			if (distance >= INFINITY) {
+				return INFINITE_KEY;
+			}
+
+			return CellPriorityQueue.key(distance + AStarFactoryPathFinder.manhattanDistance(grid, sourceCell, cell) + keyModifier,
+										 distance);
+		}
+
+		// Fills the array with the 4-connected neighbours of the cell, free or not, and returns their number
+		private int neighbours(final int cell,
+							   final int[] neighbours) {
+			final int xIndex = grid.xIndex(cell);
+			final int yIndex = grid.yIndex(cell);
+			int count = 0;
+
+			if (yIndex > 0) {
+				neighbours[count++] = cell - grid.getxSize();
+			}
+
+			if (xIndex + 1 < grid.getxSize()) {
+				neighbours[count++] = cell + 1;
+			}
+
+			if (yIndex + 1 < grid.getySize()) {
+				neighbours[count++] = cell + grid.getxSize();
+			}
+
+			if (xIndex > 0) {
+				neighbours[count++] = cell - 1;
+			}
+
+			return count;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Scratch arrays for the searches over an {@link OccupancyGrid}, taken from a
+ * pool shared by all the threads for the duration of a search. As many
+ * components may run on virtual threads, the search spaces are not kept per
+ * thread: only as many are allocated as there are searches running at the
+ * same time, which the simulation engines bound.
+ * <p>
+ * Instead of clearing the arrays before each search, a cell is only considered
+ * visited if its stamp matches the stamp of the current search.
+ */
+final class GridSearchSpace {
+
+	// The number of behaviours the simulation engines run at the same time by default
+	private static final int MAX_POOLED_SEARCH_SPACES = 2 * Runtime.getRuntime().availableProcessors();
+
+	private static final Deque<GridSearchSpace> SEARCH_SPACES = new ArrayDeque<>();
+
+	private int[] distances;
+
+	private int[] parents;
+
+	private int[] stamps;
+
+	private int[] queue;
+
+	private int[] closedStamps;
+
+	private CellPriorityQueue openCells;
+
+	private int stamp;
+
+	private GridSearchSpace() {
+		distances = new int[0];
+		parents = distances;
+		stamps = distances;
+		queue = distances;
+		closedStamps = distances;
+		openCells = new CellPriorityQueue(0);
+		stamp = 0;
+	}
+
+	/**
+	 * Takes a search space from the pool, ready for a new search over a grid of
+	 * the given number of cells. It must be given back with
+	 * {@link #release(GridSearchSpace)} once the search results are read.
+	 */
+	static GridSearchSpace acquire(final int cellCount) {
+		GridSearchSpace searchSpace;
+
+		synchronized (SEARCH_SPACES) {
+			searchSpace = SEARCH_SPACES.pollFirst();
+		}
+
+		if (searchSpace == null) {
+			searchSpace = new GridSearchSpace();
+		}
+
+		searchSpace.reset(cellCount);
+
+		return searchSpace;
+	}
+
+	/**
+	 * Gives the search space back to the pool, which drops it if it already
+	 * holds enough search spaces.
+	 */
+	static void release(final GridSearchSpace searchSpace) {
+		synchronized (SEARCH_SPACES) {
+			if (SEARCH_SPACES.size() < MAX_POOLED_SEARCH_SPACES) {
+				SEARCH_SPACES.addFirst(searchSpace);
+			}
+		}
+	}
+
+	private void reset(final int cellCount) {
+		if (stamps.length < cellCount) {
+			distances = new int[cellCount];
+			parents = new int[cellCount];
+			stamps = new int[cellCount];
+			queue = new int[cellCount];
+			closedStamps = new int[cellCount];
+			openCells = new CellPriorityQueue(cellCount);
+			stamp = 0;
+		}
+
+		stamp++;
+
+		if (stamp == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			Arrays.fill(closedStamps, 0);
+			stamp = 1;
+		}
+
+		openCells.clear();
+	}
+
+	boolean isVisited(final int cell) {
+		return stamps[cell] == stamp;
+	}
+
+	void visit(final int cell,
+			   final int distance,
+			   final int parent) {
+		stamps[cell] = stamp;
+		distances[cell] = distance;
+		parents[cell] = parent;
+	}
+
+	boolean isClosed(final int cell) {
+		return closedStamps[cell] == stamp;
+	}
+
+	void close(final int cell) {
+		closedStamps[cell] = stamp;
+	}
+
+	int getDistance(final int cell) {
+		return isVisited(cell) ? distances[cell] : Integer.MAX_VALUE;
+	}
+
+	int getParent(final int cell) {
+		return parents[cell];
+	}
+
+	int[] getQueue() {
+		return queue;
+	}
+
+	CellPriorityQueue getOpenCells() {
+		return openCells;
+	}
+}
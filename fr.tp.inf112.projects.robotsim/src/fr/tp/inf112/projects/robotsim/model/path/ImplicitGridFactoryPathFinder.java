@@ -0,0 +1,54 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Shortest path finder over the implicit 4-connected grid of the factory. All
+ * moves have the same cost, so Dijkstra reduces to a breadth first search run
+ * on primitive arrays.
+ */
+public class ImplicitGridFactoryPathFinder extends AbstractGridFactoryPathFinder {
+
+	private static final long serialVersionUID = 4210867781652731092L;
+
+	public ImplicitGridFactoryPathFinder(final Factory factoryModel,
+										 final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	boolean search(final OccupancyGrid grid,
+				   final GridSearchSpace searchSpace,
+				   final int sourceCell,
+				   final int targetCell) {
+		final int[] queue = searchSpace.getQueue();
+		final int[] neighbours = new int[4];
+		int head = 0;
+		int tail = 0;
+
+		searchSpace.visit(sourceCell, 0, NO_CELL);
+		queue[tail++] = sourceCell;
+
+		while (head < tail) {
+			final int cell = queue[head++];
+			final int distance = searchSpace.getDistance(cell) + 1;
+			final int neighboursCount = freeNeighbours(grid, cell, neighbours);
+
+			for (int index = 0; index < neighboursCount; index++) {
+				final int neighbour = neighbours[index];
+
+				if (!searchSpace.isVisited(neighbour)) {
+					searchSpace.visit(neighbour, distance, cell);
+
+					if (neighbour == targetCell) {
+						return true;
+					}
+
+					queue[tail++] = neighbour;
+				}
+			}
+		}
+
+		return false;
+	}
+}
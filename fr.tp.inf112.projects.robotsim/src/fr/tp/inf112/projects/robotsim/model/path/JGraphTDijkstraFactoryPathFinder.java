@@ -31,8 +31,8 @@ public class JGraphTDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<
 	}
 
 	@Override
-	public List<Position> findPath(final Component sourceComponent,
-								   final Component targetComponent) {
+	public synchronized List<Position> findPath(final Component sourceComponent,
+												final Component targetComponent) {
 		buildGraph();
 		
 		final PositionedShape sourceVertex = getVertex(sourceComponent.getPosition());
@@ -56,24 +56,6 @@ public class JGraphTDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<
 		return shortestPathPositions;
 	}
 
-	@Override
-	protected PositionedShape getVertex(final int xIndex,
-										final int yIndex) {
-		final Iterator<PositionedShape> iterator = getGraphVertexesIterator();
-		final int resolution = getResolution();
-		final Position position = new Position(xIndex * resolution, yIndex * resolution);
-
-		while (iterator.hasNext()) {
-			final PositionedShape shape = iterator.next();
-			
-			if (position.equals(shape.getPosition())) {
-				return shape;
-			}
-		}
-		
-		return null;
-	}
-
 	@Override
 	protected float overlayedSurface(final PositionedShape vertex,
 									 final PositionedShape shape) {
@@ -106,6 +88,12 @@ public class JGraphTDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<
 		return getGraph().addEdge(vertex1, vertex2) != null;
 	}
 
+	@Override
+	protected boolean removeEdge(final PositionedShape vertex1,
+								 final PositionedShape vertex2) {
+		return getGraph().removeEdge(vertex1, vertex2) != null;
+	}
+
 	@Override
 	protected int getxCoordinate(final PositionedShape vertex) {
 		return vertex.getxCoordinate();
@@ -0,0 +1,140 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Jump Point Search specialised for the 4-connected uniform cost grid of the
+ * factory. Horizontal runs are scanned until a cell with a forced vertical
+ * neighbour, and vertical runs stop wherever a horizontal scan finds such a
+ * cell, so A* only expands the cells where an optimal path may turn.
+ */
+public class JumpPointSearchFactoryPathFinder extends AStarFactoryPathFinder {
+
+	private static final long serialVersionUID = 2675219370722834245L;
+
+	public JumpPointSearchFactoryPathFinder(final Factory factoryModel,
+											final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	int successors(final OccupancyGrid grid,
+				   final GridSearchSpace searchSpace,
+				   final int cell,
+				   final int targetCell,
+				   final int[] successors) {
+		final int xIndex = grid.xIndex(cell);
+		final int yIndex = grid.yIndex(cell);
+		final int parentCell = searchSpace.getParent(cell);
+		int count = 0;
+
+		if (parentCell == NO_CELL) {
+			count = addJumpPoint(grid, xIndex, yIndex, 1, 0, targetCell, successors, count);
+			count = addJumpPoint(grid, xIndex, yIndex, -1, 0, targetCell, successors, count);
+			count = addJumpPoint(grid, xIndex, yIndex, 0, 1, targetCell, successors, count);
+
+			return addJumpPoint(grid, xIndex, yIndex, 0, -1, targetCell, successors, count);
+		}
+
+		final int xDirection = Integer.signum(xIndex - grid.xIndex(parentCell));
+		final int yDirection = Integer.signum(yIndex - grid.yIndex(parentCell));
+
+		if (xDirection != 0) {
+			count = addJumpPoint(grid, xIndex, yIndex, xDirection, 0, targetCell, successors, count);
+			count = addJumpPoint(grid, xIndex, yIndex, 0, 1, targetCell, successors, count);
+
+			return addJumpPoint(grid, xIndex, yIndex, 0, -1, targetCell, successors, count);
+		}
+
+		count = addJumpPoint(grid, xIndex, yIndex, 0, yDirection, targetCell, successors, count);
+		count = addJumpPoint(grid, xIndex, yIndex, 1, 0, targetCell, successors, count);
+
+		return addJumpPoint(grid, xIndex, yIndex, -1, 0, targetCell, successors, count);
+	}
+
+	private static int addJumpPoint(final OccupancyGrid grid,
+									final int xIndex,
+									final int yIndex,
+									final int xDirection,
+									final int yDirection,
+									final int targetCell,
+									final int[] successors,
+									final int count) {
+		final int jumpPoint = jump(grid, xIndex + xDirection, yIndex + yDirection, xDirection, yDirection, targetCell);
+
+		if (jumpPoint == NO_CELL) {
+			return count;
+		}
+
+		successors[count] = jumpPoint;
+
+		return count + 1;
+	}
+
+	private static int jump(final OccupancyGrid grid,
+							int xIndex,
+							int yIndex,
+							final int xDirection,
+							final int yDirection,
+							final int targetCell) {
+		while (grid.isFree(xIndex, yIndex)) {
+			final int cell = grid.cellIndex(xIndex, yIndex);
+
+			if (cell == targetCell) {
+				return cell;
+			}
+
+			if (xDirection != 0) {
+				if ((grid.isFree(xIndex, yIndex - 1) && !grid.isFree(xIndex - xDirection, yIndex - 1)) ||
+					(grid.isFree(xIndex, yIndex + 1) && !grid.isFree(xIndex - xDirection, yIndex + 1))) {
+					return cell;
+				}
+			}
+			else {
+				if ((grid.isFree(xIndex - 1, yIndex) && !grid.isFree(xIndex - 1, yIndex - yDirection)) ||
+					(grid.isFree(xIndex + 1, yIndex) && !grid.isFree(xIndex + 1, yIndex - yDirection))) {
+					return cell;
+				}
+
+				if (jump(grid, xIndex + 1, yIndex, 1, 0, targetCell) != NO_CELL ||
+					jump(grid, xIndex - 1, yIndex, -1, 0, targetCell) != NO_CELL) {
+					return cell;
+				}
+			}
+
+			xIndex += xDirection;
+			yIndex += yDirection;
+		}
+
+		return NO_CELL;
+	}
+
+	// Jump points are joined by straight runs of cells which are filled in here
+	@Override
+	List<Position> toPositions(final OccupancyGrid grid,
+							   final GridSearchSpace searchSpace,
+							   final int sourceCell,
+							   final int targetCell) {
+		final List<Position> positions = new ArrayList<>(searchSpace.getDistance(targetCell));
+
+		for (int cell = targetCell; cell != sourceCell; cell = searchSpace.getParent(cell)) {
+			final int parentCell = searchSpace.getParent(cell);
+			final int xDirection = Integer.signum(grid.xIndex(parentCell) - grid.xIndex(cell));
+			final int yDirection = Integer.signum(grid.yIndex(parentCell) - grid.yIndex(cell));
+			final int step = grid.cellIndex(xDirection, yDirection) - grid.cellIndex(0, 0);
+
+			for (int runCell = cell; runCell != parentCell; runCell += step) {
+				positions.add(grid.getPosition(runCell));
+			}
+		}
+
+		Collections.reverse(positions);
+
+		return positions;
+	}
+}
@@ -0,0 +1,282 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * Packed bitmap of the factory cells, at a path finder resolution, that are
+ * covered by a component which cannot be overlayed. Cell (xIndex, yIndex) is
+ * the square of side resolution whose top left corner is at
+ * (xIndex * resolution, yIndex * resolution).
+ */
+public class OccupancyGrid {
+
+	private final int resolution;
+
+	private final int xSize;
+
+	private final int ySize;
+
+	private final long[] occupiedCells;
+
+	private final long topologyVersion;
+
+	private OccupancyGrid(final int resolution,
+						  final int xSize,
+						  final int ySize,
+						  final long topologyVersion) {
+		this(resolution, xSize, ySize, topologyVersion, new long[(xSize * ySize + 63) >>> 6]);
+	}
+
+	private OccupancyGrid(final int resolution,
+						  final int xSize,
+						  final int ySize,
+						  final long topologyVersion,
+						  final long[] occupiedCells) {
+		this.topologyVersion = topologyVersion;
+		this.resolution = resolution;
+		this.xSize = xSize;
+		this.ySize = ySize;
+		this.occupiedCells = occupiedCells;
+	}
+
+	/**
+	 * Rasterizes every component of the factory in a single pass. Only the
+	 * cells covered by the bounds of a component are tested against it.
+	 */
+	public static OccupancyGrid rasterize(final Factory factoryModel,
+										  final int resolution) {
+		// Read the version first so that a concurrent change makes the grid outdated
+		final long topologyVersion = factoryModel.getTopologyVersion();
+		final OccupancyGrid grid = new OccupancyGrid(resolution,
+													 factoryModel.getWidth() / resolution,
+													 factoryModel.getHeight() / resolution,
+													 topologyVersion);
+		final RectangularShape cellShape = new RectangularShape(0, 0, resolution, resolution);
+
+		for (final Component component : factoryModel.getComponents()) {
+			if (component != null) {
+				grid.rasterize(component, cellShape);
+			}
+		}
+
+		return grid;
+	}
+
+	/**
+	 * Returns a grid up to date with the factory. Only the cells covered by the
+	 * areas the factory reports as changed since this grid was rasterized are
+	 * rasterized again, this grid being left untouched.
+	 */
+	public OccupancyGrid update(final Factory factoryModel) {
+		if (!isOutdated(factoryModel)) {
+			return this;
+		}
+
+		final long currentTopologyVersion = factoryModel.getTopologyVersion();
+		final List<PositionedShape> changedAreas = factoryModel.getTopologyChangesSince(topologyVersion);
+
+		if (changedAreas == null ||
+			xSize != factoryModel.getWidth() / resolution ||
+			ySize != factoryModel.getHeight() / resolution) {
+			return rasterize(factoryModel, resolution);
+		}
+
+		final OccupancyGrid grid = new OccupancyGrid(resolution,
+													 xSize,
+													 ySize,
+													 currentTopologyVersion,
+													 occupiedCells.clone());
+		final RectangularShape cellShape = new RectangularShape(0, 0, resolution, resolution);
+
+		for (final PositionedShape changedArea : changedAreas) {
+			grid.rasterize(factoryModel, changedArea, cellShape);
+		}
+
+		return grid;
+	}
+
+	// Clears the cells covered by the area and rasterizes them again from the components overlaying them
+	private void rasterize(final Factory factoryModel,
+						   final PositionedShape area,
+						   final RectangularShape cellShape) {
+		final int minxIndex = minxIndex(area);
+		final int minyIndex = minyIndex(area);
+		final int maxxIndex = maxxIndex(area);
+		final int maxyIndex = maxyIndex(area);
+
+		for (int xIndex = minxIndex; xIndex <= maxxIndex; xIndex++) {
+			for (int yIndex = minyIndex; yIndex <= maxyIndex; yIndex++) {
+				final int cell = cellIndex(xIndex, yIndex);
+				occupiedCells[cell >>> 6] &= ~(1L << cell);
+			}
+		}
+
+		for (final Component component : factoryModel.getComponents()) {
+			if (component != null) {
+				final PositionedShape bounds = component.getBounds();
+
+				rasterize(component,
+						  cellShape,
+						  Math.max(minxIndex, minxIndex(bounds)),
+						  Math.max(minyIndex, minyIndex(bounds)),
+						  Math.min(maxxIndex, maxxIndex(bounds)),
+						  Math.min(maxyIndex, maxyIndex(bounds)));
+			}
+		}
+	}
+
+	private void rasterize(final Component component,
+						   final RectangularShape cellShape) {
+		final PositionedShape bounds = component.getBounds();
+
+		rasterize(component, cellShape, minxIndex(bounds), minyIndex(bounds), maxxIndex(bounds), maxyIndex(bounds));
+	}
+
+	private void rasterize(final Component component,
+						   final RectangularShape cellShape,
+						   final int minxIndex,
+						   final int minyIndex,
+						   final int maxxIndex,
+						   final int maxyIndex) {
+		for (int xIndex = minxIndex; xIndex <= maxxIndex; xIndex++) {
+			for (int yIndex = minyIndex; yIndex <= maxyIndex; yIndex++) {
+				final int cell = cellIndex(xIndex, yIndex);
+
+				if (!isOccupied(cell)) {
+					cellShape.setxCoordinate(xIndex * resolution);
+					cellShape.setyCoordinate(yIndex * resolution);
+
+					if (component.overlays(cellShape) && !component.canBeOverlayed(cellShape)) {
+						occupiedCells[cell >>> 6] |= 1L << cell;
+					}
+				}
+			}
+		}
+	}
+
+	private int minxIndex(final PositionedShape bounds) {
+		return Math.max(0, Math.floorDiv(bounds.getxCoordinate(), resolution));
+	}
+
+	private int minyIndex(final PositionedShape bounds) {
+		return Math.max(0, Math.floorDiv(bounds.getyCoordinate(), resolution));
+	}
+
+	private int maxxIndex(final PositionedShape bounds) {
+		return Math.min(xSize - 1, Math.floorDiv(bounds.getxCoordinate() + bounds.getWidth(), resolution));
+	}
+
+	private int maxyIndex(final PositionedShape bounds) {
+		return Math.min(ySize - 1, Math.floorDiv(bounds.getyCoordinate() + bounds.getHeight(), resolution));
+	}
+
+	/**
+	 * Returns the cells whose occupancy differs in the given grid, which must
+	 * have the same size as this one.
+	 */
+	int[] differingCells(final OccupancyGrid grid) {
+		int count = 0;
+
+		for (int wordIndex = 0; wordIndex < occupiedCells.length; wordIndex++) {
+			count += Long.bitCount(occupiedCells[wordIndex] ^ grid.occupiedCells[wordIndex]);
+		}
+
+		final int[] cells = new int[count];
+		count = 0;
+
+		for (int wordIndex = 0; wordIndex < occupiedCells.length; wordIndex++) {
+			long differingBits = occupiedCells[wordIndex] ^ grid.occupiedCells[wordIndex];
+
+			while (differingBits != 0) {
+				cells[count++] = (wordIndex << 6) + Long.numberOfTrailingZeros(differingBits);
+				differingBits &= differingBits - 1;
+			}
+		}
+
+		return cells;
+	}
+
+	/**
+	 * @return the version of the factory topology this grid was rasterized from.
+	 */
+	public long getTopologyVersion() {
+		return topologyVersion;
+	}
+
+	public boolean isOutdated(final Factory factoryModel) {
+		return topologyVersion != factoryModel.getTopologyVersion();
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	public int getxSize() {
+		return xSize;
+	}
+
+	public int getySize() {
+		return ySize;
+	}
+
+	public int xIndexOf(final int xCoordinate) {
+		return indexOf(xCoordinate, xSize);
+	}
+
+	public int yIndexOf(final int yCoordinate) {
+		return indexOf(yCoordinate, ySize);
+	}
+
+	// Index of the cell overlaying the most of a square of side resolution starting at the coordinate
+	private int indexOf(final int coordinate,
+						final int size) {
+		int index = Math.floorDiv(coordinate, resolution);
+
+		if (2 * (coordinate - index * resolution) > resolution) {
+			index++;
+		}
+
+		return Math.max(0, Math.min(size - 1, index));
+	}
+
+	public int cellOf(final Position position) {
+		return cellIndex(xIndexOf(position.getxCoordinate()), yIndexOf(position.getyCoordinate()));
+	}
+
+	public int xIndex(final int cell) {
+		return cell % xSize;
+	}
+
+	public int yIndex(final int cell) {
+		return cell / xSize;
+	}
+
+	public int getCellCount() {
+		return xSize * ySize;
+	}
+
+	public Position getPosition(final int cell) {
+		return new Position(xIndex(cell) * resolution, yIndex(cell) * resolution);
+	}
+
+	public int cellIndex(final int xIndex,
+						 final int yIndex) {
+		return yIndex * xSize + xIndex;
+	}
+
+	public boolean isOccupied(final int cell) {
+		return (occupiedCells[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	public boolean isFree(final int xIndex,
+						  final int yIndex) {
+		return xIndex >= 0 && xIndex < xSize && yIndex >= 0 && yIndex < ySize &&
+			   !isOccupied(cellIndex(xIndex, yIndex));
+	}
+}
@@ -0,0 +1,42 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * The path finder implementations, to choose one by name, e.g. on the command
+ * line of the simulation runners.
+ */
+public enum PathFinderKind {
+
+	JGRAPHT_DIJKSTRA,
+
+	CUSTOM_DIJKSTRA,
+
+	IMPLICIT_GRID,
+
+	A_STAR,
+
+	JUMP_POINT_SEARCH,
+
+	D_STAR_LITE;
+
+	public FactoryPathFinder create(final Factory factoryModel,
+									final int resolution) {
+		switch (this) {
+			case JGRAPHT_DIJKSTRA:
+				return new JGraphTDijkstraFactoryPathFinder(factoryModel, resolution);
+			case CUSTOM_DIJKSTRA:
+				return new CustomDijkstraFactoryPathFinder(factoryModel, resolution);
+			case IMPLICIT_GRID:
+				return new ImplicitGridFactoryPathFinder(factoryModel, resolution);
+			case A_STAR:
+				return new AStarFactoryPathFinder(factoryModel, resolution);
+			case JUMP_POINT_SEARCH:
+				return new JumpPointSearchFactoryPathFinder(factoryModel, resolution);
+			case D_STAR_LITE:
+				return new DStarLiteFactoryPathFinder(factoryModel, resolution);
+			default:
+				throw new IllegalStateException("Unexpected path finder: " + this);
+		}
+	}
+}
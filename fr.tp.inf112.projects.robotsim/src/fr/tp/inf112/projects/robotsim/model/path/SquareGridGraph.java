@@ -0,0 +1,18 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import fr.tp.inf112.projects.graph.Vertex;
+import fr.tp.inf112.projects.graph.impl.GridGraph;
+
+/**
+ * Grid graph whose edges are held by their {@link SquareVertex} start vertexes
+ * only, so that they can be removed when the factory topology changes and the
+ * distance to a successor is found without scanning all the edges.
+ */
+public class SquareGridGraph extends GridGraph {
+
+	@Override
+	public int getDistance(final Vertex vertex1,
+						   final Vertex vertex2) {
+		return ((SquareVertex) vertex1).getDistance(vertex2);
+	}
+}
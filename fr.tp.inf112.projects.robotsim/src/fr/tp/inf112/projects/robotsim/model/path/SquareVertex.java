@@ -1,5 +1,12 @@
 package fr.tp.inf112.projects.robotsim.model.path;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import fr.tp.inf112.projects.graph.Edge;
+import fr.tp.inf112.projects.graph.Vertex;
 import fr.tp.inf112.projects.graph.impl.GridVertex;
 import fr.tp.inf112.projects.robotsim.model.Position;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
@@ -7,6 +14,9 @@ import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 public class SquareVertex extends GridVertex {
 	
 	private final RectangularShape shape;
+	
+	// The edges by successor, kept here as the base vertex cannot remove its edges
+	private final Map<Vertex, Edge> edges;
 
 	public SquareVertex(final String label,
 						final int xCoordinate,
@@ -15,6 +25,32 @@ public class SquareVertex extends GridVertex {
 		super(label, xCoordinate, yCoordinate);
 
 		this.shape = new RectangularShape(xCoordinate, yCoordinate, size, size);
+		edges = new LinkedHashMap<>();
+	}
+	
+	@Override
+	public Set<Vertex> getSuccessors() {
+		return Collections.unmodifiableSet(edges.keySet());
+	}
+	
+	@Override
+	public boolean addEdge(final Edge edge) {
+		final Vertex successor = edge.getVertex1() == this ? edge.getVertex2() : edge.getVertex1();
+		
+		return edges.putIfAbsent(successor, edge) == null;
+	}
+	
+	public boolean removeEdge(final Vertex successor) {
+		return edges.remove(successor) != null;
+	}
+	
+	/**
+	 * @return the distance to the successor, or -1 if it is not a successor.
+	 */
+	public int getDistance(final Vertex successor) {
+		final Edge edge = edges.get(successor);
+		
+		return edge == null ? -1 : edge.getDistance();
 	}
 
 	public RectangularShape getShape() {
@@ -0,0 +1,479 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Discrete event simulation engine. The behaviours of the active components
+ * and the actions scheduled with {@link #schedule(long, Runnable)} are events
+ * ordered by their simulated time, in milliseconds, and the simulated time
+ * jumps from one event to the next.
+ * <p>
+ * A component which behaved, e.g. a robot which moved to the next position of
+ * its path, behaves again one step later. A component whose behaviour did
+ * nothing is idle: it is retried after a number of steps doubling up to
+ * {@link #MAX_IDLE_STEPS}, and woken as soon as the topology of the factory
+ * changes, e.g. when a door opens, or, for a {@link TwoPhaseBehaviour} waiting
+ * for a position, as soon as a mobile component leaves that position, so that
+ * blocked robots cost almost nothing.
+ * Events of the same time run in the order of the factory components, the
+ * scheduled actions first, so that a run only depends on the initial model and
+ * a component woken by another one behaves when it would have behaved with the
+ * {@link TickSimulationEngine}.
+ */
+public class DiscreteEventSimulationEngine implements SimulationEngine {
+
+	private static final Logger LOGGER = Logger.getLogger(DiscreteEventSimulationEngine.class.getName());
+
+	/**
+	 * Maximum number of steps between two behaviours of an idle component.
+	 */
+	public static final int MAX_IDLE_STEPS = 64;
+
+	// Size of the cells the idle components are registered under by the position they wait for
+	private static final int WAITING_CELL_SIZE = 10;
+
+	private static final int ACTION_RANK = -1;
+
+	private final long stepDuration;
+
+	private final boolean realTime;
+
+	private final PriorityQueue<Event> events;
+
+	// Next behaviour of each active component of the factory
+	private final Map<Component, Event> behaviourEvents;
+
+	// Idle components waiting for a position, by the cells their footprint covers at that position
+	private final Map<Long, List<Component>> waitingComponents;
+
+	private final Map<Component, long[]> waitingComponentsCells;
+
+	// Index of each active component in the factory components, ordering the events of the same time
+	private final Map<Component, Integer> componentRanks;
+
+	// Actions scheduled by other threads, moved to the events by the engine
+	private final Queue<Event> scheduledActions;
+
+	private Factory scheduledFactory;
+
+	private long topologyVersion;
+
+	private long nextSequence;
+
+	private volatile long simulatedTime;
+
+	private volatile long eventCount;
+
+	private volatile Thread schedulerThread;
+
+	public DiscreteEventSimulationEngine() {
+		this(TickSimulationEngine.DEFAULT_TICK_PERIOD, true);
+	}
+
+	/**
+	 * @param stepDuration the simulated duration, in milliseconds, of a
+	 * behaviour of a component.
+	 * @param realTime <code>true</code> to run the events when their simulated
+	 * time is reached in real time, e.g. to display the simulation, or
+	 * <code>false</code> to run them as fast as possible.
+	 */
+	public DiscreteEventSimulationEngine(final long stepDuration,
+										 final boolean realTime) {
+		if (stepDuration <= 0) {
+			throw new IllegalArgumentException("Invalid step duration: " + stepDuration);
+		}
+
+		this.stepDuration = stepDuration;
+		this.realTime = realTime;
+		events = new PriorityQueue<>();
+		behaviourEvents = new IdentityHashMap<>();
+		waitingComponents = new HashMap<>();
+		waitingComponentsCells = new IdentityHashMap<>();
+		componentRanks = new IdentityHashMap<>();
+		scheduledActions = new ConcurrentLinkedQueue<>();
+		scheduledFactory = null;
+		simulatedTime = 0;
+		eventCount = 0;
+	}
+
+	public long getStepDuration() {
+		return stepDuration;
+	}
+
+	public boolean isRealTime() {
+		return realTime;
+	}
+
+	/**
+	 * @return the simulated time, in milliseconds, of the last event run.
+	 */
+	public long getSimulatedTime() {
+		return simulatedTime;
+	}
+
+	/**
+	 * @return the number of events run since this engine was created.
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * Schedules an action, e.g. opening a door, at the given simulated time.
+	 * The action runs in the thread of the engine, at the current simulated
+	 * time if the given one is already past. Can be called from any thread.
+	 */
+	public void schedule(final long time,
+						 final Runnable action) {
+		scheduledActions.add(new Event(time, ACTION_RANK, 0, null, action, 0));
+	}
+
+	@Override
+	public synchronized void start(final Factory factoryModel) {
+		if (schedulerThread == null) {
+			schedulerThread = new Thread(() -> run(factoryModel), "Simulation of " + factoryModel.getName());
+			schedulerThread.setDaemon(true);
+			schedulerThread.start();
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		final Thread thread = schedulerThread;
+		schedulerThread = null;
+
+		// Not joined as the simulation may be stopped by a component during an event
+		if (thread != null && thread != Thread.currentThread()) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return schedulerThread != null;
+	}
+
+	private void run(final Factory factoryModel) {
+		final Thread currentThread = Thread.currentThread();
+		final long pollPeriodNanos = TimeUnit.MILLISECONDS.toNanos(Math.min(stepDuration, TickSimulationEngine.DEFAULT_TICK_PERIOD));
+		long startNanos = System.nanoTime();
+		long startTime = simulatedTime;
+
+		try {
+			while (schedulerThread == currentThread && factoryModel.isSimulationStarted()) {
+				final long currentTime = realTime ? startTime + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) : 0;
+				prepare(factoryModel, Math.max(simulatedTime, currentTime));
+
+				final Event event = nextEvent();
+
+				if (event == null) {
+					// Nothing to do until the topology changes or an action is scheduled
+					TimeUnit.NANOSECONDS.sleep(pollPeriodNanos);
+					continue;
+				}
+
+				if (realTime) {
+					final long delay = startNanos + TimeUnit.MILLISECONDS.toNanos(event.time - startTime) - System.nanoTime();
+
+					if (delay > 0) {
+						// Woken regularly to notice the topology changes made meanwhile
+						TimeUnit.NANOSECONDS.sleep(Math.min(delay, pollPeriodNanos));
+						continue;
+					}
+
+					if (delay < -pollPeriodNanos) {
+						// Late events are not caught up with
+						startNanos = System.nanoTime();
+						startTime = event.time;
+					}
+				}
+
+				run(events.poll());
+			}
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			synchronized (this) {
+				if (schedulerThread == currentThread) {
+					schedulerThread = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs in the calling thread the events of the factory up to the given
+	 * simulated time, then advances the simulated time to it.
+	 */
+	public final void runUntil(final Factory factoryModel,
+							   final long time) {
+		prepare(factoryModel, simulatedTime);
+
+		for (Event event = nextEvent(); event != null && event.time <= time; event = nextEvent()) {
+			run(events.poll());
+			prepare(factoryModel, simulatedTime);
+		}
+
+		simulatedTime = Math.max(simulatedTime, time);
+	}
+
+	// Schedules the new components, the pending actions and the wake-ups due to topology changes
+	private void prepare(final Factory factoryModel,
+						 final long currentTime) {
+		if (scheduledFactory != factoryModel) {
+			scheduledFactory = factoryModel;
+			topologyVersion = factoryModel.getTopologyVersion();
+			events.clear();
+			behaviourEvents.clear();
+			waitingComponents.clear();
+			waitingComponentsCells.clear();
+			scheduleComponents(factoryModel, currentTime);
+		}
+		else if (topologyVersion != factoryModel.getTopologyVersion()) {
+			topologyVersion = factoryModel.getTopologyVersion();
+			scheduleComponents(factoryModel, currentTime);
+		}
+
+		for (Event action = scheduledActions.poll(); action != null; action = scheduledActions.poll()) {
+			events.add(new Event(Math.max(action.time, currentTime), ACTION_RANK, nextSequence++, null, action.action, 0));
+		}
+	}
+
+	// The components are added and removed through the factory, which changes its topology
+	private void scheduleComponents(final Factory factoryModel,
+									final long currentTime) {
+		final Map<Component, Event> previousEvents = new IdentityHashMap<>(behaviourEvents);
+		final List<Component> components = factoryModel.getComponents();
+		behaviourEvents.clear();
+		componentRanks.clear();
+
+		for (int index = 0; index < components.size(); index++) {
+			final Component component = components.get(index);
+
+			if (component == null || !component.isActive()) {
+				continue;
+			}
+
+			componentRanks.put(component, index);
+
+			final Event previousEvent = previousEvents.remove(component);
+
+			if (previousEvent != null && previousEvent.idleSteps == 0) {
+				behaviourEvents.put(component, previousEvent);
+			}
+			else {
+				if (previousEvent != null) {
+					previousEvent.cancelled = true;
+					stopWaiting(component);
+				}
+
+				scheduleBehaviour(component, currentTime, 0);
+			}
+		}
+
+		for (final Event removedComponentEvent : previousEvents.values()) {
+			removedComponentEvent.cancelled = true;
+			stopWaiting(removedComponentEvent.component);
+		}
+	}
+
+	private void scheduleBehaviour(final Component component,
+								   final long time,
+								   final int idleSteps) {
+		final Event event = new Event(time, componentRanks.get(component), nextSequence++, component, null, idleSteps);
+		events.add(event);
+		behaviourEvents.put(component, event);
+	}
+
+	private Event nextEvent() {
+		Event event = events.peek();
+
+		while (event != null && event.cancelled) {
+			events.poll();
+			event = events.peek();
+		}
+
+		return event;
+	}
+
+	private void run(final Event event) {
+		simulatedTime = Math.max(simulatedTime, event.time);
+		eventCount++;
+
+		if (event.action != null) {
+			try {
+				event.action.run();
+			}
+			catch (final RuntimeException ex) {
+				LOGGER.log(Level.SEVERE, "Scheduled action failed.", ex);
+			}
+
+			return;
+		}
+
+		final Component component = event.component;
+		stopWaiting(component);
+
+		// Cells left by the component if it moves
+		final Position previousPosition = component.isMobile() && !waitingComponents.isEmpty()
+				? new Position(component.getxCoordinate(), component.getyCoordinate())
+				: null;
+		final long[] previousCells = previousPosition == null
+				? null
+				: ParallelTickSimulationEngine.footprintCells(component, previousPosition, WAITING_CELL_SIZE);
+
+		if (TickSimulationEngine.behave(component)) {
+			scheduleBehaviour(component, simulatedTime + stepDuration, 0);
+
+			if (previousPosition != null && !previousPosition.equals(component.getPosition())) {
+				wakeWaitingComponents(component, previousCells);
+			}
+		}
+		else {
+			final int idleSteps = event.idleSteps == 0 ? 1 : Math.min(2 * event.idleSteps, MAX_IDLE_STEPS);
+			scheduleBehaviour(component, simulatedTime + idleSteps * stepDuration, idleSteps);
+			startWaiting(component);
+		}
+	}
+
+	private void startWaiting(final Component component) {
+		final Position nextPosition = component instanceof TwoPhaseBehaviour
+				? ((TwoPhaseBehaviour) component).getNextPosition()
+				: null;
+
+		if (nextPosition == null) {
+			return;
+		}
+
+		final long[] cells = ParallelTickSimulationEngine.footprintCells(component, nextPosition, WAITING_CELL_SIZE);
+		waitingComponentsCells.put(component, cells);
+
+		for (final long cell : cells) {
+			waitingComponents.computeIfAbsent(cell, key -> new ArrayList<>()).add(component);
+		}
+	}
+
+	private void stopWaiting(final Component component) {
+		final long[] cells = waitingComponentsCells.remove(component);
+
+		if (cells == null) {
+			return;
+		}
+
+		for (final long cell : cells) {
+			final List<Component> cellComponents = waitingComponents.get(cell);
+			cellComponents.remove(component);
+
+			if (cellComponents.isEmpty()) {
+				waitingComponents.remove(cell);
+			}
+		}
+	}
+
+	// Retries the idle components waiting for a position in the cells left by the moved component, in the same step if they
+	// come after it in the factory components like with the tick engine, in the next step otherwise
+	private void wakeWaitingComponents(final Component movedComponent,
+									   final long[] cells) {
+		final int movedComponentRank = componentRanks.get(movedComponent);
+
+		final List<Component> wokenComponents = new ArrayList<>();
+
+		for (final long cell : cells) {
+			final List<Component> cellComponents = waitingComponents.get(cell);
+
+			if (cellComponents != null) {
+				for (final Component component : cellComponents) {
+					if (!wokenComponents.contains(component)) {
+						wokenComponents.add(component);
+					}
+				}
+			}
+		}
+
+		for (final Component component : wokenComponents) {
+			stopWaiting(component);
+			behaviourEvents.get(component).cancelled = true;
+			scheduleBehaviour(component,
+							  componentRanks.get(component) > movedComponentRank ? simulatedTime : simulatedTime + stepDuration,
+							  0);
+		}
+	}
+
+	/**
+	 * @return the number of idle components, waiting for a retry or a topology
+	 * change. To be called from the thread running the events.
+	 */
+	public int getIdleComponentCount() {
+		int idleComponents = 0;
+
+		for (final Event event : behaviourEvents.values()) {
+			if (event.idleSteps > 0) {
+				idleComponents++;
+			}
+		}
+
+		return idleComponents;
+	}
+
+	private static final class Event implements Comparable<Event> {
+
+		private final long time;
+
+		private final int rank;
+
+		private final long sequence;
+
+		private final Component component;
+
+		private final Runnable action;
+
+		// Number of steps the component waited for before this behaviour, 0 if it behaved last time
+		private final int idleSteps;
+
+		private boolean cancelled;
+
+		private Event(final long time,
+					  final int rank,
+					  final long sequence,
+					  final Component component,
+					  final Runnable action,
+					  final int idleSteps) {
+			this.time = time;
+			this.rank = rank;
+			this.sequence = sequence;
+			this.component = component;
+			this.action = action;
+			this.idleSteps = idleSteps;
+			cancelled = false;
+		}
+
+		@Override
+		public int compareTo(final Event other) {
+			final int timeComparison = Long.compare(time, other.time);
+
+			if (timeComparison != 0) {
+				return timeComparison;
+			}
+
+			final int rankComparison = Integer.compare(rank, other.rank);
+
+			return rankComparison != 0 ? rankComparison : Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Simulation engine running the behaviour loop of each active component as a
+ * task of its own, so that many factories can be simulated in the same JVM.
+ * When the Java runtime provides virtual threads, each loop runs on a virtual
+ * thread and holds no platform thread while waiting for its next behaviour.
+ * Otherwise the behaviours are scheduled periodically on a small pool of
+ * platform threads shared by all the engines.
+ * <p>
+ * The number of behaviours running at the same time is bounded by a semaphore
+ * which, unless one is given, is also shared by all the engines.
+ */
+public class ExecutorSimulationEngine implements SimulationEngine {
+
+	private static final Logger LOGGER = Logger.getLogger(ExecutorSimulationEngine.class.getName());
+
+	private static final Semaphore SHARED_BEHAVIOUR_PERMITS = new Semaphore(2 * Runtime.getRuntime().availableProcessors());
+
+	private static final ExecutorService VIRTUAL_THREADS_EXECUTOR = newVirtualThreadsExecutor();
+
+	private static final AtomicInteger SCHEDULER_THREAD_COUNT = new AtomicInteger();
+
+	private static ScheduledExecutorService sharedScheduler;
+
+	private final long behaviourPeriod;
+
+	private final Semaphore behaviourPermits;
+
+	private List<Future<?>> behaviours;
+
+	public ExecutorSimulationEngine() {
+		this(TickSimulationEngine.DEFAULT_TICK_PERIOD);
+	}
+
+	/**
+	 * @param behaviourPeriod the pause, in milliseconds, made by each component
+	 * between two behaviours.
+	 */
+	public ExecutorSimulationEngine(final long behaviourPeriod) {
+		this(behaviourPeriod, SHARED_BEHAVIOUR_PERMITS);
+	}
+
+	public ExecutorSimulationEngine(final long behaviourPeriod,
+									final Semaphore behaviourPermits) {
+		if (behaviourPeriod < 0) {
+			throw new IllegalArgumentException("Negative behaviour period: " + behaviourPeriod);
+		}
+
+		this.behaviourPeriod = behaviourPeriod;
+		this.behaviourPermits = behaviourPermits;
+		behaviours = null;
+	}
+
+	/**
+	 * @return <code>true</code> if the behaviour loops run on virtual threads.
+	 */
+	public static boolean isUsingVirtualThreads() {
+		return VIRTUAL_THREADS_EXECUTOR != null;
+	}
+
+	@Override
+	public synchronized void start(final Factory factoryModel) {
+		if (behaviours != null) {
+			return;
+		}
+
+		final List<Component> components = factoryModel.getComponents();
+		behaviours = new ArrayList<>();
+
+		for (int index = 0; index < components.size(); index++) {
+			final Component component = components.get(index);
+
+			if (component != null && component.isActive()) {
+				behaviours.add(start(factoryModel, component));
+			}
+		}
+	}
+
+	private Future<?> start(final Factory factoryModel,
+							final Component component) {
+		if (isUsingVirtualThreads()) {
+			return VIRTUAL_THREADS_EXECUTOR.submit(() -> run(factoryModel, component));
+		}
+
+		return getSharedScheduler().scheduleWithFixedDelay(() -> behave(factoryModel, component),
+														   0,
+														   Math.max(1, behaviourPeriod),
+														   TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Interrupts the behaviour loops without waiting for them to end, as the
+	 * simulation may be stopped from a behaviour.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (behaviours != null) {
+			for (final Future<?> behaviour : behaviours) {
+				behaviour.cancel(true);
+			}
+
+			behaviours = null;
+		}
+	}
+
+	@Override
+	public synchronized boolean isRunning() {
+		return behaviours != null;
+	}
+
+	private void run(final Factory factoryModel,
+					 final Component component) {
+		try {
+			while (factoryModel.isSimulationStarted() && !Thread.currentThread().isInterrupted()) {
+				behave(factoryModel, component);
+
+				if (behaviourPeriod > 0) {
+					TimeUnit.MILLISECONDS.sleep(behaviourPeriod);
+				}
+				else {
+					Thread.yield();
+				}
+			}
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void behave(final Factory factoryModel,
+						final Component component) {
+		if (!factoryModel.isSimulationStarted()) {
+			return;
+		}
+
+		try {
+			behaviourPermits.acquire();
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+
+			return;
+		}
+
+		try {
+			TickSimulationEngine.behave(component);
+		}
+		finally {
+			behaviourPermits.release();
+		}
+	}
+
+	private static ExecutorService newVirtualThreadsExecutor() {
+		try {
+			// Looked up reflectively as virtual threads are not available on all the supported runtimes
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (final ReflectiveOperationException ex) {
+			LOGGER.log(Level.CONFIG, "Virtual threads are not available, behaviours will be scheduled on platform threads.");
+
+			return null;
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getSharedScheduler() {
+		if (sharedScheduler == null) {
+			sharedScheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+				final Thread thread = new Thread(runnable, "Behaviour scheduler " + SCHEDULER_THREAD_COUNT.incrementAndGet());
+				thread.setDaemon(true);
+
+				return thread;
+			});
+		}
+
+		return sharedScheduler;
+	}
+}
@@ -0,0 +1,320 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+
+/**
+ * Tick engine running each tick in three phases. The components with a
+ * {@link TwoPhaseBehaviour} first plan their motions in parallel on a fork/join
+ * pool. The conflicts are then resolved on a grid of claimed cells: the
+ * components not moving claim the cells covered by their footprint, and a
+ * motion whose footprint at its waypoints or target covers a cell already
+ * claimed, by one of them or by a motion earlier in the factory list, is
+ * denied, the denied components claiming their footprint in turn. The
+ * motions are finally committed in bulk, their notifications being coalesced
+ * by the factory. Other active components behave during the commit phase, in their
+ * factory order, so runs remain reproducible.
+ */
+public class ParallelTickSimulationEngine extends TickSimulationEngine {
+
+	private static final Logger LOGGER = Logger.getLogger(ParallelTickSimulationEngine.class.getName());
+
+	// Number of components below which a planning task is not split any further
+	private static final int PLANNING_THRESHOLD = 8;
+
+	// Size of the cells claimed by the footprints of the moving components
+	static final int CLAIM_CELL_SIZE = 5;
+
+	private final ForkJoinPool planningPool;
+
+	public ParallelTickSimulationEngine() {
+		this(DEFAULT_TICK_PERIOD);
+	}
+
+	public ParallelTickSimulationEngine(final long tickPeriod) {
+		this(tickPeriod, ForkJoinPool.commonPool());
+	}
+
+	public ParallelTickSimulationEngine(final long tickPeriod,
+										final ForkJoinPool planningPool) {
+		super(tickPeriod);
+
+		this.planningPool = planningPool;
+	}
+
+	@Override
+	protected void advance(final Factory factoryModel) {
+		final Component[] components = activeComponents(factoryModel);
+		final Motion[] motions = new Motion[components.length];
+
+		planningPool.invoke(new PlanningTask(components, motions, 0, components.length));
+
+		final boolean[] granted = resolveConflicts(components, motions);
+
+		for (int index = 0; index < components.length; index++) {
+			final Component component = components[index];
+
+			if (component instanceof TwoPhaseBehaviour) {
+				commit(component, motions[index], granted[index]);
+			}
+			else {
+				behave(component);
+			}
+		}
+	}
+
+	/**
+	 * Grants the motions in the factory order unless they conflict with the
+	 * footprint of a component staying in place or with a motion granted
+	 * before. A denied component stays in place, so its footprint is claimed
+	 * in turn and only the granted motions claiming one of its cells are
+	 * denied, possibly denying others the same way.
+	 */
+	static boolean[] resolveConflicts(final Component[] components,
+									  final Motion[] motions) {
+		final boolean[] granted = new boolean[components.length];
+		final Set<Long> stillClaims = new HashSet<>();
+		
+		// Index of the granted motion claiming each cell, and the cells claimed by each granted motion
+		final Map<Long, Integer> motionClaims = new HashMap<>();
+		final long[][] claimedCells = new long[components.length][];
+
+		for (int index = 0; index < components.length; index++) {
+			granted[index] = motions[index] != null;
+
+			if (!granted[index] && components[index].isMobile()) {
+				occupy(stillClaims, components[index]);
+			}
+		}
+
+		for (int index = 0; index < components.length; index++) {
+			if (granted[index]) {
+				claimedCells[index] = motionCells(components[index], motions[index]);
+
+				if (!claim(stillClaims, motionClaims, claimedCells[index], index)) {
+					deny(components, granted, stillClaims, motionClaims, claimedCells, index);
+				}
+			}
+		}
+
+		return granted;
+	}
+
+	// Claims the cells of a component staying in place, even if another component already overlays it
+	private static void occupy(final Set<Long> claims,
+							   final Component component) {
+		for (final long cell : footprintCells(component, component.getPosition(), CLAIM_CELL_SIZE)) {
+			claims.add(cell);
+		}
+	}
+
+	/**
+	 * Denies the motion, then the granted motions claiming a cell of the
+	 * footprint of a denied component, which stays in place.
+	 */
+	private static void deny(final Component[] components,
+							 final boolean[] granted,
+							 final Set<Long> stillClaims,
+							 final Map<Long, Integer> motionClaims,
+							 final long[][] claimedCells,
+							 final int index) {
+		final Deque<Integer> deniedIndexes = new ArrayDeque<>();
+		granted[index] = false;
+		deniedIndexes.add(index);
+
+		while (!deniedIndexes.isEmpty()) {
+			final Component component = components[deniedIndexes.poll()];
+
+			for (final long cell : footprintCells(component, component.getPosition(), CLAIM_CELL_SIZE)) {
+				// A cell already claimed by a component staying in place cannot be claimed by a granted motion
+				if (stillClaims.add(cell)) {
+					final Integer claimingIndex = motionClaims.get(cell);
+
+					if (claimingIndex != null) {
+						for (final long claimedCell : claimedCells[claimingIndex]) {
+							motionClaims.remove(claimedCell);
+						}
+
+						granted[claimingIndex] = false;
+						deniedIndexes.add(claimingIndex);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the cells covered by the footprint of the component at each
+	 * waypoint and at the target of its motion.
+	 */
+	private static long[] motionCells(final Component component,
+									  final Motion motion) {
+		final List<long[]> positionsCells = new ArrayList<>(motion.getWaypoints().size() + 1);
+		int cellCount = 0;
+
+		for (final Position waypoint : motion.getWaypoints()) {
+			positionsCells.add(footprintCells(component, waypoint, CLAIM_CELL_SIZE));
+		}
+
+		positionsCells.add(footprintCells(component, motion.getTargetPosition(), CLAIM_CELL_SIZE));
+
+		for (final long[] cells : positionsCells) {
+			cellCount += cells.length;
+		}
+
+		final long[] motionCells = new long[cellCount];
+		cellCount = 0;
+
+		for (final long[] cells : positionsCells) {
+			System.arraycopy(cells, 0, motionCells, cellCount, cells.length);
+			cellCount += cells.length;
+		}
+
+		return motionCells;
+	}
+
+	/**
+	 * Claims the cells of the motion of the given index.
+	 * 
+	 * @return <code>false</code> if one of the cells was already claimed, in
+	 * which case no cell is claimed.
+	 */
+	private static boolean claim(final Set<Long> stillClaims,
+								 final Map<Long, Integer> motionClaims,
+								 final long[] cells,
+								 final int index) {
+		for (final long cell : cells) {
+			if (stillClaims.contains(cell) || motionClaims.containsKey(cell)) {
+				return false;
+			}
+		}
+
+		for (final long cell : cells) {
+			motionClaims.put(cell, index);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the keys of the cells of the given size covered by the footprint
+	 * of the component at the given position.
+	 */
+	static long[] footprintCells(final Component component,
+								 final Position position,
+								 final int cellSize) {
+		final int minXCell = Math.floorDiv(position.getxCoordinate(), cellSize);
+		final int minYCell = Math.floorDiv(position.getyCoordinate(), cellSize);
+		final int maxXCell = Math.floorDiv(position.getxCoordinate() + Math.max(component.getWidth(), 1) - 1, cellSize);
+		final int maxYCell = Math.floorDiv(position.getyCoordinate() + Math.max(component.getHeight(), 1) - 1, cellSize);
+		final long[] cells = new long[(maxXCell - minXCell + 1) * (maxYCell - minYCell + 1)];
+		int cellIndex = 0;
+
+		for (int xCell = minXCell; xCell <= maxXCell; xCell++) {
+			for (int yCell = minYCell; yCell <= maxYCell; yCell++) {
+				cells[cellIndex++] = key(xCell, yCell);
+			}
+		}
+
+		return cells;
+	}
+
+	private static Component[] activeComponents(final Factory factoryModel) {
+		final List<Component> components = factoryModel.getComponents();
+		final List<Component> activeComponents = new ArrayList<>();
+
+		for (int index = 0; index < components.size(); index++) {
+			final Component component = components.get(index);
+
+			if (component != null && component.isActive()) {
+				activeComponents.add(component);
+			}
+		}
+
+		return activeComponents.toArray(new Component[activeComponents.size()]);
+	}
+
+	private static long key(final int xCell,
+							final int yCell) {
+		return ((long) xCell << 32) | (yCell & 0xFFFFFFFFL);
+	}
+
+	private static Motion plan(final Component component) {
+		try {
+			return ((TwoPhaseBehaviour) component).planMotion();
+		}
+		catch (final RuntimeException ex) {
+			LOGGER.log(Level.SEVERE, "Motion planning of component " + component.getName() + " failed.", ex);
+
+			return null;
+		}
+	}
+
+	private static boolean commit(final Component component,
+								  final Motion motion,
+								  final boolean granted) {
+		try {
+			return ((TwoPhaseBehaviour) component).commitMotion(motion, granted);
+		}
+		catch (final RuntimeException ex) {
+			LOGGER.log(Level.SEVERE, "Motion of component " + component.getName() + " failed.", ex);
+
+			return false;
+		}
+	}
+
+	private static final class PlanningTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 6353478235207473431L;
+
+		private final Component[] components;
+
+		private final Motion[] motions;
+
+		private final int start;
+
+		private final int end;
+
+		private PlanningTask(final Component[] components,
+							 final Motion[] motions,
+							 final int start,
+							 final int end) {
+			this.components = components;
+			this.motions = motions;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= PLANNING_THRESHOLD) {
+				for (int index = start; index < end; index++) {
+					if (components[index] instanceof TwoPhaseBehaviour) {
+						motions[index] = plan(components[index]);
+					}
+				}
+			}
+			else {
+				final int middle = (start + end) >>> 1;
+
+				invokeAll(new PlanningTask(components, motions, start, middle),
+						  new PlanningTask(components, motions, middle, end));
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Drives the behaviour of the components of a factory while its simulation
+ * is started.
+ */
+public interface SimulationEngine {
+
+	/**
+	 * Starts advancing the components of the factory until {@link #stop()} is
+	 * called or the simulation of the factory is stopped. Does nothing if the
+	 * engine is already running.
+	 */
+	void start(Factory factoryModel);
+
+	void stop();
+
+	boolean isRunning();
+}
@@ -0,0 +1,161 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Discrete time simulation engine. A single scheduler thread advances every
+ * active component of the factory once per tick, always in the order of the
+ * factory components, so that a run only depends on the initial model.
+ */
+public class TickSimulationEngine implements SimulationEngine {
+
+	private static final Logger LOGGER = Logger.getLogger(TickSimulationEngine.class.getName());
+
+	/**
+	 * Tick period, in milliseconds, of the engine of a factory that was not
+	 * given one. It is the pause the components used to make between two
+	 * behaviours when each ran in its own thread.
+	 */
+	public static final long DEFAULT_TICK_PERIOD = 50;
+
+	/**
+	 * Tick period running the ticks back to back, e.g. for headless runs.
+	 */
+	public static final long AS_FAST_AS_POSSIBLE = 0;
+
+	private final long tickPeriod;
+
+	private volatile Thread schedulerThread;
+
+	private volatile long tickCount;
+
+	public TickSimulationEngine() {
+		this(DEFAULT_TICK_PERIOD);
+	}
+
+	/**
+	 * @param tickPeriod the duration of a tick in milliseconds, or
+	 * {@link #AS_FAST_AS_POSSIBLE}.
+	 */
+	public TickSimulationEngine(final long tickPeriod) {
+		if (tickPeriod < 0) {
+			throw new IllegalArgumentException("Negative tick period: " + tickPeriod);
+		}
+
+		this.tickPeriod = tickPeriod;
+		tickCount = 0;
+	}
+
+	public long getTickPeriod() {
+		return tickPeriod;
+	}
+
+	/**
+	 * @return the number of ticks run since this engine was created.
+	 */
+	public long getTickCount() {
+		return tickCount;
+	}
+
+	@Override
+	public synchronized void start(final Factory factoryModel) {
+		if (schedulerThread == null) {
+			schedulerThread = new Thread(() -> run(factoryModel), "Simulation of " + factoryModel.getName());
+			schedulerThread.setDaemon(true);
+			schedulerThread.start();
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		final Thread thread = schedulerThread;
+		schedulerThread = null;
+
+		// Not joined as the simulation may be stopped by a component during a tick
+		if (thread != null && thread != Thread.currentThread()) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return schedulerThread != null;
+	}
+
+	private void run(final Factory factoryModel) {
+		final Thread currentThread = Thread.currentThread();
+		final long tickPeriodNanos = TimeUnit.MILLISECONDS.toNanos(tickPeriod);
+		long nextTickTime = System.nanoTime();
+
+		try {
+			while (schedulerThread == currentThread && factoryModel.isSimulationStarted()) {
+				tick(factoryModel);
+
+				if (tickPeriodNanos > 0) {
+					nextTickTime += tickPeriodNanos;
+					final long delay = nextTickTime - System.nanoTime();
+
+					if (delay > 0) {
+						TimeUnit.NANOSECONDS.sleep(delay);
+					}
+					else {
+						// Late ticks are not caught up with
+						nextTickTime = System.nanoTime();
+					}
+				}
+			}
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			synchronized (this) {
+				if (schedulerThread == currentThread) {
+					schedulerThread = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a single tick of the factory in the calling thread.
+	 */
+	public final void tick(final Factory factoryModel) {
+		advance(factoryModel);
+		tickCount++;
+	}
+
+	/**
+	 * Advances every active component of the factory by one behaviour, in the
+	 * order of the factory components. Components added during the tick are
+	 * advanced in the same tick.
+	 */
+	protected void advance(final Factory factoryModel) {
+		final List<Component> components = factoryModel.getComponents();
+
+		for (int index = 0; index < components.size(); index++) {
+			final Component component = components.get(index);
+
+			if (component != null && component.isActive()) {
+				behave(component);
+			}
+		}
+	}
+
+	static boolean behave(final Component component) {
+		try {
+			return component.behave();
+		}
+		catch (final RuntimeException ex) {
+			LOGGER.log(Level.SEVERE, "Behaviour of component " + component.getName() + " failed.", ex);
+
+			return false;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+
+/**
+ * Behaviour of a component split into a planning phase, which only reads the
+ * factory and can therefore run in parallel with the planning of the other
+ * components, and a commit phase applying the planned motion.
+ */
+public interface TwoPhaseBehaviour {
+
+	/**
+	 * Updates the internal state of the component and returns the motion it
+	 * intends to make, without moving it nor modifying the factory.
+	 * 
+	 * @return <code>null</code> if the component does not intend to move.
+	 */
+	Motion planMotion();
+
+	/**
+	 * Applies the motion returned by the last call to {@link #planMotion()}.
+	 * 
+	 * @param motion the planned motion, possibly <code>null</code>.
+	 * @param granted <code>false</code> if the motion was denied, e.g. because
+	 * another component intends to move to the same position.
+	 * @return <code>true</code> if the component moved.
+	 */
+	boolean commitMotion(Motion motion,
+						 boolean granted);
+
+	/**
+	 * @return the position the component waits for to move to, e.g. while
+	 * another component occupies it, or <code>null</code> if it is not known.
+	 */
+	default Position getNextPosition() {
+		return null;
+	}
+}
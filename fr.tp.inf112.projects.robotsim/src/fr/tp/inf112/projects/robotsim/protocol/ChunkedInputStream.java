@@ -0,0 +1,103 @@
+package fr.tp.inf112.projects.robotsim.protocol;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a body written by a {@link ChunkedOutputStream}, reaching the end of the
+ * stream at the empty chunk ending it. Closing this stream skips the rest of
+ * the body but leaves the connection open.
+ */
+public class ChunkedInputStream extends InputStream {
+
+    private final DataInputStream input;
+
+    private final int maxBodyLength;
+
+    private int chunkRemaining;
+
+    private long bodyLength;
+
+    private boolean ended;
+
+    public ChunkedInputStream(DataInputStream input) {
+        this(input, Frame.MAX_PAYLOAD_LENGTH);
+    }
+
+    /**
+     * @param maxBodyLength the length above which the body is rejected.
+     */
+    public ChunkedInputStream(DataInputStream input, int maxBodyLength) {
+        this.input = input;
+        this.maxBodyLength = maxBodyLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+
+        chunkRemaining--;
+        return input.readUnsignedByte();
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        if (!nextChunk()) {
+            return -1;
+        }
+
+        int count = input.read(bytes, offset, Math.min(length, chunkRemaining));
+
+        if (count < 0) {
+            throw new IOException("Connection closed in the middle of a chunk.");
+        }
+
+        chunkRemaining -= count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return ended ? 0 : Math.min(chunkRemaining, input.available());
+    }
+
+    @Override
+    public void close() throws IOException {
+        while (nextChunk()) {
+            input.skipNBytes(chunkRemaining);
+            chunkRemaining = 0;
+        }
+    }
+
+    /**
+     * @return the rest of the body decoded as UTF-8 text.
+     */
+    public String readText() throws IOException {
+        return new String(readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    // Returns false once the body ended
+    private boolean nextChunk() throws IOException {
+        while (chunkRemaining == 0 && !ended) {
+            int chunkLength = input.readInt();
+
+            if (chunkLength < 0 || bodyLength + chunkLength > maxBodyLength) {
+                throw new IOException("Invalid chunk length: " + chunkLength);
+            }
+
+            bodyLength += chunkLength;
+            chunkRemaining = chunkLength;
+            ended = chunkLength == 0;
+        }
+
+        return !ended;
+    }
+}
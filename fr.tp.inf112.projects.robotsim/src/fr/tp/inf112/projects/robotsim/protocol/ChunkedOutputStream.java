@@ -0,0 +1,94 @@
+package fr.tp.inf112.projects.robotsim.protocol;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a body of unknown length to a connection as length-prefixed chunks,
+ * ended by an empty chunk, so that documents can be serialized directly to the
+ * connection. Closing this stream ends the body but not the connection.
+ */
+public class ChunkedOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+
+    private final DataOutputStream output;
+
+    private final byte[] chunk;
+
+    private int chunkLength;
+
+    private boolean closed;
+
+    public ChunkedOutputStream(DataOutputStream output) {
+        this(output, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedOutputStream(DataOutputStream output, int chunkSize) {
+        this.output = output;
+        chunk = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        ensureOpen();
+
+        if (chunkLength == chunk.length) {
+            writeChunk();
+        }
+
+        chunk[chunkLength++] = (byte) value;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+
+        while (length > 0) {
+            if (chunkLength == chunk.length) {
+                writeChunk();
+            }
+
+            int count = Math.min(length, chunk.length - chunkLength);
+            System.arraycopy(bytes, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes as a chunk and flushes the connection.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        writeChunk();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            writeChunk();
+            output.writeInt(0);
+            output.flush();
+            closed = true;
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        if (chunkLength > 0) {
+            output.writeInt(chunkLength);
+            output.write(chunk, 0, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Chunked body already ended.");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package fr.tp.inf112.projects.robotsim.protocol;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message of the persistence protocol. On the wire, a frame is the length of
+ * the rest of the frame as a 4 bytes integer, followed by the request
+ * identifier, the type code and the payload, so that the frames can be read
+ * from a stream without any other delimiter.
+ */
+public class Frame {
+
+    /** Size of the request identifier and type code following the length. */
+    public static final int HEADER_LENGTH = Integer.BYTES + 1;
+
+    public static final int MAX_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+
+    private final int requestId;
+
+    private final FrameType type;
+
+    private final byte[] payload;
+
+    public Frame(int requestId, FrameType type, byte[] payload) {
+        if (payload.length > MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Frame payload too large: " + payload.length);
+        }
+
+        this.requestId = requestId;
+        this.type = type;
+        this.payload = payload;
+    }
+
+    public Frame(int requestId, FrameType type, String text) {
+        this(requestId, type, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public FrameType getType() {
+        return type;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public String getText() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + HEADER_LENGTH + payload.length);
+        buffer.putInt(HEADER_LENGTH + payload.length).putInt(requestId).put(type.getCode()).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return the bytes preceding a payload of this length on the wire, so that
+     * a payload already in a buffer can be written after them without copying.
+     */
+    public static ByteBuffer header(int requestId, FrameType type, int payloadLength) {
+        if (payloadLength > MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Frame payload too large: " + payloadLength);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + HEADER_LENGTH);
+        buffer.putInt(HEADER_LENGTH + payloadLength).putInt(requestId).put(type.getCode());
+        buffer.flip();
+        return buffer;
+    }
+
+    public void writeTo(DataOutputStream output) throws IOException {
+        output.writeInt(HEADER_LENGTH + payload.length);
+        output.writeInt(requestId);
+        output.writeByte(type.getCode());
+        output.write(payload);
+    }
+
+    public static Frame readFrom(DataInputStream input) throws IOException {
+        int length = checkLength(input.readInt());
+        int requestId = input.readInt();
+        FrameType type;
+        try {
+            type = FrameType.valueOf(input.readByte());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        byte[] payload = new byte[length - HEADER_LENGTH];
+        input.readFully(payload);
+        return new Frame(requestId, type, payload);
+    }
+
+    static int checkLength(int length) throws IOException {
+        if (length < HEADER_LENGTH || length > HEADER_LENGTH + MAX_PAYLOAD_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "Frame [requestId=" + requestId + ", type=" + type + ", payloadLength=" + payload.length + "]";
+    }
+}
@@ -0,0 +1,108 @@
+package fr.tp.inf112.projects.robotsim.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Rebuilds the frames of a connection from the bytes read in arbitrary chunks
+ * by non-blocking channels. The payload of a frame is only allocated as its
+ * bytes arrive, so that a peer declaring a large frame without sending it does
+ * not hold the memory of the declared length.
+ */
+public class FrameDecoder {
+
+    private static final int INITIAL_PAYLOAD_CAPACITY = 16 * 1024;
+
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(Frame.HEADER_LENGTH);
+
+    // Length of the payload of the frame being decoded, negative until its length is read
+    private int payloadLength = -1;
+
+    private int requestId;
+
+    private FrameType type;
+
+    private byte[] payload;
+
+    private int payloadSize;
+
+    /**
+     * Consumes all the remaining bytes of the buffer.
+     *
+     * @return the frames completed by these bytes, in their order.
+     * @throws IOException if a frame has an invalid length or type.
+     */
+    public Queue<Frame> decode(ByteBuffer bytes) throws IOException {
+        Queue<Frame> frames = new ArrayDeque<>();
+
+        while (bytes.hasRemaining()) {
+            if (payloadLength < 0) {
+                transfer(bytes, lengthBuffer);
+
+                if (lengthBuffer.hasRemaining()) {
+                    break;
+                }
+
+                lengthBuffer.flip();
+                payloadLength = Frame.checkLength(lengthBuffer.getInt()) - Frame.HEADER_LENGTH;
+                lengthBuffer.clear();
+            }
+
+            if (payload == null) {
+                transfer(bytes, headerBuffer);
+
+                if (headerBuffer.hasRemaining()) {
+                    break;
+                }
+
+                headerBuffer.flip();
+                requestId = headerBuffer.getInt();
+
+                try {
+                    type = FrameType.valueOf(headerBuffer.get());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage(), e);
+                }
+
+                headerBuffer.clear();
+                payload = new byte[Math.min(payloadLength, INITIAL_PAYLOAD_CAPACITY)];
+                payloadSize = 0;
+            }
+
+            readPayload(bytes);
+
+            if (payloadSize == payloadLength) {
+                frames.add(new Frame(requestId, type, payload));
+                payloadLength = -1;
+                payload = null;
+            }
+        }
+
+        return frames;
+    }
+
+    // The payload grows by doubling up to the frame length, so that it is not copied once complete
+    private void readPayload(ByteBuffer bytes) {
+        int count = Math.min(bytes.remaining(), payloadLength - payloadSize);
+
+        if (payloadSize + count > payload.length) {
+            payload = Arrays.copyOf(payload, (int) Math.min(payloadLength, Math.max(2L * payload.length, payloadSize + count)));
+        }
+
+        bytes.get(payload, payloadSize, count);
+        payloadSize += count;
+    }
+
+    private static void transfer(ByteBuffer source, ByteBuffer target) {
+        int count = Math.min(source.remaining(), target.remaining());
+        ByteBuffer slice = source.slice();
+        slice.limit(count);
+        target.put(slice);
+        source.position(source.position() + count);
+    }
+}
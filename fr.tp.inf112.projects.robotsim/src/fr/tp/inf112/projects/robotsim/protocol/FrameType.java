@@ -0,0 +1,53 @@
+package fr.tp.inf112.projects.robotsim.protocol;
+
+/**
+ * Types of the frames exchanged with the persistence server. Requests are sent
+ * by the clients, each answered by a single response frame carrying the same
+ * request identifier.
+ */
+public enum FrameType {
+
+    /** Request saving the factory model given as typed JSON. */
+    SAVE(1),
+
+    /** Request the factory model of the identifier given as UTF-8 text. */
+    READ(2),
+
+    /** Request the identifiers of the saved factory models. */
+    LIST(3),
+
+    /** Request deleting all the saved factory models. */
+    DELETE_ALL(4),
+
+    /** Response holding a UTF-8 message. */
+    OK(64),
+
+    /** Response holding a factory model as typed JSON. */
+    MODEL(65),
+
+    /** Response holding identifiers as UTF-8 text, one per line. */
+    IDENTIFIERS(66),
+
+    /** Response holding the UTF-8 message of a failed request. */
+    ERROR(127);
+
+    private final byte code;
+
+    FrameType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static FrameType valueOf(byte code) {
+        for (FrameType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown frame type: " + code);
+    }
+}
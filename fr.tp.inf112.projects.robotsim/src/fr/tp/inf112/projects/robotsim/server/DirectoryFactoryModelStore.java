@@ -0,0 +1,82 @@
+package fr.tp.inf112.projects.robotsim.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+
+/**
+ * Store writing each factory model to a JSON file of its own, named after the
+ * sanitized identifier of the model.
+ */
+public class DirectoryFactoryModelStore implements FactoryModelStore {
+
+    private static final Logger LOGGER = Logger.getLogger(DirectoryFactoryModelStore.class.getName());
+
+    private static final String EXTENSION = ".json";
+
+    private final File directory;
+
+    public DirectoryFactoryModelStore(File directory) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create storage directory: " + directory);
+        }
+
+        this.directory = directory;
+    }
+
+    @Override
+    public void save(Factory factory) throws IOException {
+        String sanitizedFileName = sanitizeFileName(factory.getId());
+        File file = new File(directory, sanitizedFileName + EXTENSION);
+        FactoryJson.getTypedWriter().writeValue(file, factory);
+        LOGGER.info("Saved factory model: " + sanitizedFileName);
+    }
+
+    @Override
+    public void save(String id, byte[] model) throws IOException {
+        String sanitizedFileName = sanitizeFileName(id);
+        Files.write(new File(directory, sanitizedFileName + EXTENSION).toPath(), model);
+        LOGGER.info("Saved factory model: " + sanitizedFileName);
+    }
+
+    @Override
+    public byte[] read(String id) throws IOException {
+        File file = new File(directory, sanitizeFileName(id) + EXTENSION);
+        return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+    }
+
+    @Override
+    public List<String> list() {
+        List<String> ids = new ArrayList<>();
+        String[] fileNames = directory.list((dir, name) -> name.endsWith(EXTENSION));
+
+        if (fileNames != null) {
+            for (String fileName : fileNames) {
+                ids.add(fileName.substring(0, fileName.length() - EXTENSION.length()));
+            }
+        }
+
+        return ids;
+    }
+
+    @Override
+    public void deleteAll() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    static String sanitizeFileName(String fileName) {
+        return fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,42 @@
+package fr.tp.inf112.projects.robotsim.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Storage of the factory models saved on the persistence server, as the typed
+ * JSON documents sent back to the clients. Implementations must be thread
+ * safe as requests of different clients are handled concurrently.
+ */
+public interface FactoryModelStore {
+
+    void save(Factory factory) throws IOException;
+
+    /**
+     * Saves the JSON document of a model as it was received, without building
+     * the model.
+     */
+    void save(String id, byte[] model) throws IOException;
+
+    /**
+     * @return the JSON document of the model, or <code>null</code> if there is
+     * no model of this identifier.
+     */
+    byte[] read(String id) throws IOException;
+
+    /**
+     * Same as {@link #read(String)}, for stores able to give a view of the
+     * document without copying it.
+     */
+    default ByteBuffer readBuffer(String id) throws IOException {
+        byte[] model = read(id);
+        return model == null ? null : ByteBuffer.wrap(model);
+    }
+
+    List<String> list() throws IOException;
+
+    void deleteAll() throws IOException;
+}
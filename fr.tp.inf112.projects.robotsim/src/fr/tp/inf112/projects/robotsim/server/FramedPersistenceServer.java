@@ -0,0 +1,290 @@
+package fr.tp.inf112.projects.robotsim.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+import fr.tp.inf112.projects.robotsim.protocol.Frame;
+import fr.tp.inf112.projects.robotsim.protocol.FrameDecoder;
+import fr.tp.inf112.projects.robotsim.protocol.FrameType;
+
+/**
+ * Persistence server exchanging {@link Frame frames} over asynchronous socket
+ * channels. The reads and writes of all the connections complete on a fixed
+ * pool of I/O threads, while their requests are parsed and handled by a fixed
+ * pool of worker threads, so that a burst of clients queues requests instead
+ * of creating threads, and a slow save does not hold up the I/O of the other
+ * connections. Connections above a maximum number are refused. The requests of a
+ * connection are answered one after the other, in the order they were sent,
+ * so that clients may send several requests without waiting for the responses.
+ */
+public class FramedPersistenceServer implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(FramedPersistenceServer.class.getName());
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 256;
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private static final AtomicInteger IO_THREAD_COUNT = new AtomicInteger();
+
+    private static final AtomicInteger WORKER_THREAD_COUNT = new AtomicInteger();
+
+    private final FactoryModelStore store;
+
+    private final int maxConnections;
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final AsynchronousChannelGroup channelGroup;
+
+    private final ExecutorService workers;
+
+    private final AsynchronousServerSocketChannel serverChannel;
+
+    public FramedPersistenceServer(int port, FactoryModelStore store) throws IOException {
+        this(port, store, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * @param workerThreads the number of threads handling the requests of all
+     * the connections.
+     */
+    public FramedPersistenceServer(int port, FactoryModelStore store, int workerThreads, int maxConnections)
+            throws IOException {
+        this.store = store;
+        this.maxConnections = maxConnections;
+        channelGroup = AsynchronousChannelGroup.withFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "Persistence I/O " + IO_THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A connection has at most one request being handled, so the queue never holds more than the connections
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                                         new ArrayBlockingQueue<>(maxConnections), runnable -> {
+            Thread thread = new Thread(runnable, "Persistence worker " + WORKER_THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        serverChannel = AsynchronousServerSocketChannel.open(channelGroup)
+                .setOption(StandardSocketOptions.SO_REUSEADDR, true)
+                .bind(new InetSocketAddress(port), maxConnections);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public void start() throws IOException {
+        LOGGER.info("Server is waiting for clients on port " + getPort() + "...");
+        accept();
+    }
+
+    /**
+     * Blocks until the server is closed.
+     */
+    public void awaitTermination() throws InterruptedException {
+        channelGroup.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        channelGroup.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void accept() {
+        serverChannel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel channel, Void attachment) {
+                accept();
+
+                if (connectionCount.incrementAndGet() > maxConnections) {
+                    LOGGER.warning("Refusing client, too many connections.");
+                    new Connection(channel).refuse();
+                } else {
+                    LOGGER.fine("Client connected.");
+                    new Connection(channel).read();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exception, Void attachment) {
+                if (!(exception instanceof AsynchronousCloseException)) {
+                    LOGGER.log(Level.SEVERE, "Error accepting a client", exception);
+                    accept();
+                }
+            }
+        });
+    }
+
+    Frame handle(Frame request) {
+        try {
+            switch (request.getType()) {
+                case SAVE:
+                    // Stored as received, only its identifier being read
+                    store.save(FactoryJson.readId(request.getPayload()), request.getPayload());
+                    return new Frame(request.getRequestId(), FrameType.OK, "Factory model saved successfully.");
+                case READ:
+                    byte[] model = store.read(request.getText());
+                    if (model == null) {
+                        return new Frame(request.getRequestId(), FrameType.ERROR, "File not found.");
+                    }
+                    return new Frame(request.getRequestId(), FrameType.MODEL, model);
+                case LIST:
+                    return new Frame(request.getRequestId(), FrameType.IDENTIFIERS, String.join("\n", store.list()));
+                case DELETE_ALL:
+                    store.deleteAll();
+                    return new Frame(request.getRequestId(), FrameType.OK, "All factory models deleted.");
+                default:
+                    return new Frame(request.getRequestId(), FrameType.ERROR, "Unrecognized request: " + request.getType());
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error handling request " + request, e);
+            return new Frame(request.getRequestId(), FrameType.ERROR, String.valueOf(e.getMessage()));
+        }
+    }
+
+    // Models are written from the buffer of the store, which may be a slice of a mapped file
+    private ByteBuffer[] respond(Frame request) {
+        if (request.getType() == FrameType.READ) {
+            try {
+                ByteBuffer model = store.readBuffer(request.getText());
+
+                if (model != null) {
+                    return new ByteBuffer[] {
+                        Frame.header(request.getRequestId(), FrameType.MODEL, model.remaining()), model
+                    };
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Error handling request " + request, e);
+                return new ByteBuffer[] {
+                    new Frame(request.getRequestId(), FrameType.ERROR, String.valueOf(e.getMessage())).toByteBuffer()
+                };
+            }
+        }
+
+        return new ByteBuffer[] { handle(request).toByteBuffer() };
+    }
+
+    private final class Connection {
+
+        private final AsynchronousSocketChannel channel;
+
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        private final FrameDecoder decoder = new FrameDecoder();
+
+        private final Queue<Frame> pendingRequests = new ArrayDeque<>();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void refuse() {
+            write(new ByteBuffer[] { new Frame(0, FrameType.ERROR, "Too many connections.").toByteBuffer() }, this::close);
+        }
+
+        private void read() {
+            readBuffer.clear();
+            channel.read(readBuffer, null, new CompletionHandler<Integer, Void>() {
+                @Override
+                public void completed(Integer count, Void attachment) {
+                    if (count < 0) {
+                        close();
+                        return;
+                    }
+
+                    readBuffer.flip();
+
+                    try {
+                        pendingRequests.addAll(decoder.decode(readBuffer));
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Closing connection sending an invalid frame", e);
+                        close();
+                        return;
+                    }
+
+                    handleNextRequest();
+                }
+
+                @Override
+                public void failed(Throwable exception, Void attachment) {
+                    LOGGER.log(Level.FINE, "Error reading from client", exception);
+                    close();
+                }
+            });
+        }
+
+        // Only one read, request or write is pending at a time, chaining the handling of the requests of the connection
+        private void handleNextRequest() {
+            Frame request = pendingRequests.poll();
+
+            if (request == null) {
+                read();
+                return;
+            }
+
+            try {
+                workers.execute(() -> write(respond(request), this::handleNextRequest));
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(Level.FINE, "Closing connection of a closed server", e);
+                close();
+            }
+        }
+
+        private void write(ByteBuffer[] buffers, Runnable next) {
+            channel.write(buffers, 0, buffers.length, 0, TimeUnit.MILLISECONDS, null, new CompletionHandler<Long, Void>() {
+                @Override
+                public void completed(Long count, Void attachment) {
+                    if (buffers[buffers.length - 1].hasRemaining()) {
+                        channel.write(buffers, 0, buffers.length, 0, TimeUnit.MILLISECONDS, null, this);
+                    } else {
+                        next.run();
+                    }
+                }
+
+                @Override
+                public void failed(Throwable exception, Void attachment) {
+                    LOGGER.log(Level.FINE, "Error writing to client", exception);
+                    close();
+                }
+            });
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+
+            connectionCount.decrementAndGet();
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error closing client connection", e);
+            }
+        }
+    }
+}
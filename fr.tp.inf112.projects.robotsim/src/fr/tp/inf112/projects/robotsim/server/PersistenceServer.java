@@ -3,40 +3,36 @@ package fr.tp.inf112.projects.robotsim.server;
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
-import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+import fr.tp.inf112.projects.robotsim.protocol.ChunkedInputStream;
+import fr.tp.inf112.projects.robotsim.protocol.ChunkedOutputStream;
+import fr.tp.inf112.projects.robotsim.protocol.FrameType;
 
 public class PersistenceServer {
     private static final Logger LOGGER = Logger.getLogger(PersistenceServer.class.getName());
     private static final String STORAGE_DIR = "factory_data/";
+    private static final String IMPORT_MARKER = "imported";
 
     // Enum for the implementation type
     private enum PersistImplementation {
         OBJECT_STREAM,
-        JSON_STREAM
+        JSON_STREAM,
+        FRAMED
     }
 
     // Set the desired implementation type here
-    private static final PersistImplementation currentImplementation = PersistImplementation.OBJECT_STREAM;
+//    private static final PersistImplementation currentImplementation = PersistImplementation.OBJECT_STREAM;
 //    private static final PersistImplementation currentImplementation = PersistImplementation.JSON_STREAM;
+    private static final PersistImplementation currentImplementation = PersistImplementation.FRAMED;
 
-    private static final ObjectMapper objectMapper;
-
-    static {
-        PolymorphicTypeValidator ptv = BasicPolymorphicTypeValidator.builder()
-                .allowIfSubType("fr.tp.inf112.projects.robotsim.model")
-                .allowIfSubType("java.util")
-                .build();
-        objectMapper = new ObjectMapper();
-        objectMapper.activateDefaultTyping(ptv, ObjectMapper.DefaultTyping.NON_FINAL);
-    }
+    private static final ObjectReader factoryReader = FactoryJson.getTypedReader();
 
     public static void main(String[] args) throws IOException {
         // Ensure the storage directory exists
@@ -45,6 +41,20 @@ public class PersistenceServer {
             throw new IOException("Failed to create storage directory: " + STORAGE_DIR);
         }
 
+        if (currentImplementation == PersistImplementation.FRAMED) {
+            // Non-blocking server, serving all the clients from a bounded pool of threads
+            try (SegmentFactoryModelStore store = openSegmentStore(storageDir);
+                 FramedPersistenceServer server = new FramedPersistenceServer(50002, store)) {
+                server.start();
+                server.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        FactoryModelStore store = new DirectoryFactoryModelStore(storageDir);
+
         try (ServerSocket serverSocket = new ServerSocket(50002)) {
             LOGGER.info("Server is waiting for clients on port 50002...");
 
@@ -53,20 +63,52 @@ public class PersistenceServer {
                 LOGGER.info("Client connected.");
 
                 // Handle the client in a new thread
-                new Thread(() -> handleClient(clientSocket)).start();
+                new Thread(() -> handleClient(clientSocket, store)).start();
             }
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Error starting the server", e);
         }
     }
 
-    private static void handleClient(Socket clientSocket) {
+    // Models saved as one file each by the previous versions of the server are imported once, when the segments are
+    // created, a marker file then keeping them from coming back after the models are deleted
+    private static SegmentFactoryModelStore openSegmentStore(File storageDir) throws IOException {
+        File segmentsDir = new File(storageDir, "segments");
+        SegmentFactoryModelStore store = new SegmentFactoryModelStore(segmentsDir);
+        File importMarker = new File(segmentsDir, IMPORT_MARKER);
+
+        if (!importMarker.exists()) {
+            if (store.list().isEmpty()) {
+                DirectoryFactoryModelStore directoryStore = new DirectoryFactoryModelStore(storageDir);
+
+                for (String id : directoryStore.list()) {
+                    try {
+                        Factory factory = factoryReader.readValue(directoryStore.read(id));
+                        store.save(factory);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to import factory model " + id, e);
+                    }
+                }
+
+                // The marker must not be seen before the imported models are durable
+                store.sync();
+            }
+
+            if (!importMarker.createNewFile()) {
+                LOGGER.warning("Failed to create import marker " + importMarker);
+            }
+        }
+
+        return store;
+    }
+
+    private static void handleClient(Socket clientSocket, FactoryModelStore store) {
         switch (currentImplementation) {
             case OBJECT_STREAM:
-                handleClientObjectStream(clientSocket);
+                handleClientObjectStream(clientSocket, store);
                 break;
             case JSON_STREAM:
-                handleClientJsonStream(clientSocket);
+                handleClientJsonStream(clientSocket, store);
                 break;
             default:
                 LOGGER.warning("Unknown implementation selected.");
@@ -74,7 +116,7 @@ public class PersistenceServer {
     }
 
     // Handling client requests with Object Stream
-    private static void handleClientObjectStream(Socket clientSocket) {
+    private static void handleClientObjectStream(Socket clientSocket, FactoryModelStore store) {
         try (ObjectInputStream ois = new ObjectInputStream(clientSocket.getInputStream());
              ObjectOutputStream oos = new ObjectOutputStream(clientSocket.getOutputStream())) {
 
@@ -82,7 +124,7 @@ public class PersistenceServer {
             LOGGER.info("Received request via Object Stream");
 
             if (received instanceof Factory) {
-                handleSaveRequest((Factory) received);
+                store.save((Factory) received);
                 oos.writeObject("Factory model saved successfully.");
             } else if (received instanceof String) {
                 String request = (String) received;
@@ -102,43 +144,46 @@ public class PersistenceServer {
         }
     }
 
-    // Handling client requests with JSON Stream
-    private static void handleClientJsonStream(Socket clientSocket) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream()))) {
-
-            String jsonRequest = reader.readLine();
-            LOGGER.info("Received JSON request: " + jsonRequest);
-
-            try {
-                Factory factory = objectMapper.readValue(jsonRequest, Factory.class);
-                LOGGER.info("Deserialied ::: " + factory + "\n");
-
-                handleSaveRequest(factory);
-                writer.write("Factory model saved successfully.");
-            } catch (JsonProcessingException e) {
-                LOGGER.warning("Failed to deserialize JSON to Factory. Checking for string request.");
-                if ("LIST_FILES".equals(jsonRequest)) {
-                    sendFileList(writer);
-                } else {
-                    readFile(jsonRequest, writer);
+    // Handling client requests with JSON Stream: a request type byte followed by a chunked body, answered the same way
+    private static void handleClientJsonStream(Socket clientSocket, FactoryModelStore store) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()))) {
+
+            FrameType requestType = FrameType.valueOf(input.readByte());
+            LOGGER.info("Received JSON request: " + requestType);
+
+            try (ChunkedInputStream body = new ChunkedInputStream(input)) {
+                switch (requestType) {
+                    case SAVE:
+                        // Parsed from the connection as it is received
+                        Factory factory = factoryReader.readValue(body);
+                        store.save(factory);
+                        writeResponse(output, FrameType.OK, "Factory model saved successfully.");
+                        break;
+                    case READ:
+                        sendModel(store, body.readText(), output);
+                        break;
+                    case LIST:
+                        writeResponse(output, FrameType.IDENTIFIERS, String.join("\n", store.list()));
+                        break;
+                    case DELETE_ALL:
+                        store.deleteAll();
+                        writeResponse(output, FrameType.OK, "All factory models deleted.");
+                        break;
+                    default:
+                        writeResponse(output, FrameType.ERROR, "Unrecognized request.");
                 }
             }
-
-            writer.newLine();
-            writer.flush();
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             LOGGER.log(Level.SEVERE, "Error handling client request via JSON Stream", e);
         }
     }
 
-    private static void handleSaveRequest(Factory factory) throws IOException {
-        String sanitizedFileName = sanitizeFileName(factory.getId());
-        File file = new File(STORAGE_DIR, sanitizedFileName + ".json");
-        try (FileWriter fileWriter = new FileWriter(file)) {
-            objectMapper.writeValue(fileWriter, factory);
+    private static void writeResponse(DataOutputStream output, FrameType type, String message) throws IOException {
+        output.writeByte(type.getCode());
+        try (ChunkedOutputStream body = new ChunkedOutputStream(output)) {
+            body.write(message.getBytes(StandardCharsets.UTF_8));
         }
-        LOGGER.info("Saved factory model: " + sanitizedFileName);
     }
 
     private static void readFile(String fileName, ObjectOutputStream oos) throws IOException {
@@ -158,16 +203,17 @@ public class PersistenceServer {
         }
     }
 
-    private static void readFile(String fileName, BufferedWriter writer) throws IOException {
-        File file = new File(STORAGE_DIR, fileName + ".json");
-        if (file.exists()) {
-            try (FileReader fileReader = new FileReader(file)) {
-                Factory factory = objectMapper.readValue(fileReader, Factory.class);
-                writer.write(objectMapper.writeValueAsString(factory));
+    // The stored document is copied to the connection without being parsed again
+    private static void sendModel(FactoryModelStore store, String id, DataOutputStream output) throws IOException {
+        byte[] model = store.read(id);
+        if (model != null) {
+            output.writeByte(FrameType.MODEL.getCode());
+            try (ChunkedOutputStream body = new ChunkedOutputStream(output)) {
+                body.write(model);
             }
         } else {
-            LOGGER.warning("File not found: " + fileName);
-            writer.write("File not found.");
+            LOGGER.warning("File not found: " + id);
+            writeResponse(output, FrameType.ERROR, "File not found.");
         }
     }
     
@@ -177,16 +223,6 @@ public class PersistenceServer {
         String[] files = storageDir.list((dir, name) -> name.endsWith(".ser"));
         oos.writeObject(files != null ? files : new String[0]);
     }
-
-    private static void sendFileList(BufferedWriter writer) throws IOException {
-        File storageDir = new File(STORAGE_DIR);
-        String[] files = storageDir.list((dir, name) -> name.endsWith(".json"));
-        writer.write(objectMapper.writeValueAsString(files != null ? files : new String[0]));
-    }
-
-    private static String sanitizeFileName(String fileName) {
-        return fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
-    }
 }
 
 
@@ -0,0 +1,511 @@
+package fr.tp.inf112.projects.robotsim.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+
+/**
+ * Store appending each saved version of a model to memory-mapped segment files,
+ * so that saving is a sequential write and reading returns a slice of the
+ * mapping without copying it. An index kept in memory, rebuilt by scanning the
+ * segments on opening, locates the last version of each model.
+ * <p>
+ * A record is the length of the rest of the record, its CRC-32, the length of
+ * the model identifier, the identifier and the JSON document of the model. The
+ * scan stops at the first empty or corrupted record, dropping a record which
+ * was not completely written when the server stopped. Segments are compacted,
+ * copying the last versions to new segments, when the versions replaced by
+ * newer ones take more than half of the space. The length of the first record
+ * of a segment is cleared before deleting it, so that a segment which could
+ * not be deleted, such as a file still mapped on Windows, is empty when
+ * scanned again.
+ */
+public class SegmentFactoryModelStore implements FactoryModelStore, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SegmentFactoryModelStore.class.getName());
+
+    /**
+     * When the segments are forced to the storage device.
+     */
+    public enum FsyncPolicy {
+
+        /** After each save, which is then durable when it returns. */
+        ALWAYS,
+
+        /** Every sync period, so that a crash loses at most the saves of a period. */
+        PERIODIC,
+
+        /** When the operating system decides to. */
+        NEVER
+    }
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final long DEFAULT_MAINTENANCE_PERIOD = 1000; // Milliseconds
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int RECORD_HEADER_LENGTH = 2 * Integer.BYTES + Short.BYTES;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final ScheduledExecutorService maintenanceScheduler;
+
+    private int lastSegmentNumber;
+
+    private long liveBytes;
+
+    private long totalBytes;
+
+    private boolean unsynced;
+
+    public SegmentFactoryModelStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, FsyncPolicy.PERIODIC, DEFAULT_MAINTENANCE_PERIOD);
+    }
+
+    /**
+     * @param maintenancePeriod the period, in milliseconds, of the periodic
+     * fsync and of the compaction checks.
+     */
+    public SegmentFactoryModelStore(File directory, int segmentSize, FsyncPolicy fsyncPolicy, long maintenancePeriod)
+            throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create storage directory: " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+        recover();
+
+        maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Model store maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenanceScheduler.scheduleWithFixedDelay(this::maintain, maintenancePeriod, maintenancePeriod,
+                                                    TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(Factory factory) throws IOException {
+        if (factory.getId() == null) {
+            throw new IOException("Factory model without identifier.");
+        }
+
+        save(factory.getId(), FactoryJson.getTypedWriter().writeValueAsBytes(factory));
+    }
+
+    @Override
+    public void save(String id, byte[] model) throws IOException {
+        append(id, model);
+        LOGGER.info("Saved factory model: " + id);
+    }
+
+    @Override
+    public byte[] read(String id) {
+        ByteBuffer model = readBuffer(id);
+
+        if (model == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[model.remaining()];
+        model.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return a read only view of the mapped JSON document of the model, or
+     * <code>null</code> if there is no model of this identifier.
+     */
+    @Override
+    public ByteBuffer readBuffer(String id) {
+        lock.readLock().lock();
+
+        try {
+            Location location = index.get(id);
+            return location == null ? null : location.segment.slice(location.dataOffset, location.dataLength);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> list() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    @Override
+    public void deleteAll() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            for (Segment segment : segments) {
+                segment.delete();
+            }
+
+            segments.clear();
+            index.clear();
+            liveBytes = 0;
+            totalBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the last version of each model to new segments and deletes the old
+     * segments.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            List<Segment> oldSegments = new ArrayList<>(segments);
+            Map<String, Location> oldIndex = Map.copyOf(index);
+            long oldLiveBytes = liveBytes;
+            long oldTotalBytes = totalBytes;
+            segments.clear();
+            index.clear();
+            liveBytes = 0;
+            totalBytes = 0;
+
+            try {
+                for (Map.Entry<String, Location> entry : oldIndex.entrySet()) {
+                    Location location = entry.getValue();
+                    appendRecord(entry.getKey(), location.segment.slice(location.dataOffset, location.dataLength));
+                }
+
+                unsynced = true;
+                force();
+            } catch (IOException | RuntimeException e) {
+                // Keeps the old segments, which still hold the last version of each model
+                for (Segment segment : segments) {
+                    segment.delete();
+                }
+
+                segments.clear();
+                segments.addAll(oldSegments);
+                index.clear();
+                index.putAll(oldIndex);
+                liveBytes = oldLiveBytes;
+                totalBytes = oldTotalBytes;
+                throw e;
+            }
+
+            for (Segment segment : oldSegments) {
+                segment.delete();
+            }
+
+            LOGGER.info("Compacted " + oldSegments.size() + " segments into " + segments.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the saved models to the storage device, whatever the fsync policy.
+     */
+    public void sync() {
+        lock.writeLock().lock();
+
+        try {
+            force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        maintenanceScheduler.shutdown();
+        lock.writeLock().lock();
+
+        try {
+            force();
+
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(String id, byte[] data) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            appendRecord(id, ByteBuffer.wrap(data));
+
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must be called with the write lock held
+    private void appendRecord(String id, ByteBuffer data) throws IOException {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+
+        if (idBytes.length > Short.MAX_VALUE) {
+            throw new IOException("Factory model identifier too long.");
+        }
+
+        int recordLength = RECORD_HEADER_LENGTH + idBytes.length + data.remaining();
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+        if (segment == null || segment.remaining() < recordLength) {
+            segment = Segment.create(new File(directory, segmentFileName(++lastSegmentNumber)),
+                                     Math.max(segmentSize, recordLength + Integer.BYTES));
+            segments.add(segment);
+        }
+
+        int dataOffset = segment.append(idBytes, data);
+        index(id, new Location(segment, dataOffset, data.limit() - data.position(), recordLength));
+        unsynced = true;
+    }
+
+    private void index(String id, Location location) {
+        Location previous = index.put(id, location);
+
+        if (previous != null) {
+            liveBytes -= previous.recordLength;
+        }
+
+        liveBytes += location.recordLength;
+        totalBytes += location.recordLength;
+    }
+
+    private void force() {
+        if (unsynced) {
+            for (Segment segment : segments) {
+                segment.force();
+            }
+
+            unsynced = false;
+        }
+    }
+
+    private void maintain() {
+        try {
+            if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+                sync();
+            }
+
+            boolean compactable;
+            lock.readLock().lock();
+
+            try {
+                compactable = segments.size() > 1 && liveBytes * 2 < totalBytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (compactable) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error maintaining the factory model store", e);
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files);
+
+        for (File file : files) {
+            Segment segment = Segment.open(file);
+            lastSegmentNumber = segment.number;
+            segment.scan((id, dataOffset, dataLength, recordLength) ->
+                         index(id, new Location(segment, dataOffset, dataLength, recordLength)));
+
+            // Left by a failed deletion, and not appended to as the records after the first one may still be valid
+            if (segment.isEmpty()) {
+                segment.delete();
+            } else {
+                segments.add(segment);
+            }
+        }
+
+        LOGGER.info("Recovered " + index.size() + " factory models from " + segments.size() + " segments");
+    }
+
+    private static String segmentFileName(int number) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    private static final class Location {
+
+        private final Segment segment;
+
+        private final int dataOffset;
+
+        private final int dataLength;
+
+        private final int recordLength;
+
+        private Location(Segment segment, int dataOffset, int dataLength, int recordLength) {
+            this.segment = segment;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+            this.recordLength = recordLength;
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(String id, int dataOffset, int dataLength, int recordLength);
+    }
+
+    private static final class Segment {
+
+        private final File file;
+
+        private final int number;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private Segment(File file, FileChannel channel, int size) throws IOException {
+            this.file = file;
+            this.channel = channel;
+            String name = file.getName();
+            number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        private static Segment create(File file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, channel, size);
+        }
+
+        private static Segment open(File file) throws IOException {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, channel, (int) channel.size());
+        }
+
+        private boolean isEmpty() {
+            return buffer.getInt(0) == 0;
+        }
+
+        private int remaining() {
+            // Keeps room for the empty record length ending the segment
+            return buffer.capacity() - buffer.position() - Integer.BYTES;
+        }
+
+        /**
+         * @return the offset of the data of the record.
+         */
+        private int append(byte[] id, ByteBuffer data) {
+            int recordOffset = buffer.position();
+            int dataOffset = recordOffset + RECORD_HEADER_LENGTH + id.length;
+            ByteBuffer record = buffer.duplicate();
+            record.position(recordOffset + 2 * Integer.BYTES);
+            record.putShort((short) id.length).put(id).put(data.duplicate());
+            int recordLength = record.position() - recordOffset - Integer.BYTES;
+
+            // The length is written last so that a partly written record is seen as the end of the segment
+            buffer.putInt(recordOffset + Integer.BYTES, checksum(recordOffset, recordLength));
+            buffer.putInt(recordOffset, recordLength);
+            buffer.position(record.position());
+            return dataOffset;
+        }
+
+        private void scan(RecordVisitor visitor) {
+            int position = 0;
+
+            while (position + RECORD_HEADER_LENGTH <= buffer.capacity()) {
+                int recordLength = buffer.getInt(position);
+
+                if (recordLength <= Integer.BYTES + Short.BYTES ||
+                    recordLength > buffer.capacity() - position - Integer.BYTES ||
+                    buffer.getInt(position + Integer.BYTES) != checksum(position, recordLength)) {
+                    break;
+                }
+
+                int idLength = buffer.getShort(position + 2 * Integer.BYTES);
+                int dataOffset = position + RECORD_HEADER_LENGTH + idLength;
+                byte[] id = new byte[idLength];
+                buffer.get(position + RECORD_HEADER_LENGTH, id);
+                visitor.visit(new String(id, StandardCharsets.UTF_8), dataOffset,
+                              position + Integer.BYTES + recordLength - dataOffset, Integer.BYTES + recordLength);
+                position += Integer.BYTES + recordLength;
+            }
+
+            buffer.position(position);
+        }
+
+        // CRC-32 of the record after its length and checksum
+        private int checksum(int recordOffset, int recordLength) {
+            CRC32 crc = new CRC32();
+            crc.update(slice(recordOffset + 2 * Integer.BYTES, recordLength - Integer.BYTES));
+            return (int) crc.getValue();
+        }
+
+        private ByteBuffer slice(int offset, int length) {
+            return buffer.slice(offset, length).asReadOnlyBuffer();
+        }
+
+        private void force() {
+            buffer.force();
+        }
+
+        private void close() throws IOException {
+            channel.close();
+        }
+
+        private void delete() throws IOException {
+            // Durable even if the file cannot be deleted, the other records being ignored after an empty one
+            buffer.putInt(0, 0);
+            buffer.force();
+            close();
+
+            // Slices read before may still be in use, the mapping is released once they are unreachable
+            if (!file.delete()) {
+                LOGGER.warning("Failed to delete segment " + file);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package fr.tp.inf112.projects.robotsim.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Battery;
+import fr.tp.inf112.projects.robotsim.model.ChangeKind;
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdate;
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdateCodec;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryChangeEvent;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+
+/**
+ * Checks that the updates of the changed components follow the factory order,
+ * that frames of component updates decode to the encoded updates, and that
+ * malformed frames are rejected.
+ */
+public class TestComponentUpdateCodec {
+
+    private static void assertRoundTrip(List<ComponentUpdate> updates) {
+        final List<ComponentUpdate> decodedUpdates = ComponentUpdateCodec.decode(ComponentUpdateCodec.encode(updates));
+
+        assertEquals(updates.size(), decodedUpdates.size());
+
+        for (int index = 0; index < updates.size(); index++) {
+            final ComponentUpdate update = updates.get(index);
+            final ComponentUpdate decodedUpdate = decodedUpdates.get(index);
+            assertEquals("Index of update " + index, update.getIndex(), decodedUpdate.getIndex());
+            assertEquals("x coordinate of update " + index, update.getxCoordinate(), decodedUpdate.getxCoordinate());
+            assertEquals("y coordinate of update " + index, update.getyCoordinate(), decodedUpdate.getyCoordinate());
+            assertEquals("State flags of update " + index, update.getStateFlags(), decodedUpdate.getStateFlags());
+        }
+    }
+
+    @Test
+    public void testRoundTripEmptyFrame() {
+        assertRoundTrip(new ArrayList<>());
+    }
+
+    @Test
+    public void testRoundTripSmallUpdates() {
+        final List<ComponentUpdate> updates = new ArrayList<>();
+
+        for (int index = 0; index < 100; index++) {
+            updates.add(new ComponentUpdate(index * 3, index, 60 - index, index % 2));
+        }
+
+        assertRoundTrip(updates);
+        assertTrue("Small updates take more than five bytes",
+                   ComponentUpdateCodec.encode(updates).length <= 2 + 5 * updates.size());
+    }
+
+    @Test
+    public void testRoundTripExtremeValues() {
+        assertRoundTrip(Arrays.asList(new ComponentUpdate(0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0),
+                                      new ComponentUpdate(0, -1, 1, -1),
+                                      new ComponentUpdate(127, -64, 64, 127),
+                                      new ComponentUpdate(128, -65, 65, 128),
+                                      new ComponentUpdate(Integer.MAX_VALUE, 0, 0, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void testUpdatesOfChangedComponentsInFactoryOrder() {
+        final Factory factory = new Factory(200, 200, "Updated Factory");
+        final Robot firstRobot = new Robot(factory, null, new CircularShape(10, 10, 2), new Battery(10), "First Robot");
+        final Robot secondRobot = new Robot(factory, null, new CircularShape(20, 20, 2), new Battery(10), "Second Robot");
+        final Robot thirdRobot = new Robot(factory, null, new CircularShape(30, 30, 2), new Battery(10), "Third Robot");
+        final Map<Component, Set<ChangeKind>> changes = new LinkedHashMap<>();
+        changes.put(thirdRobot, EnumSet.of(ChangeKind.POSITION));
+        changes.put(secondRobot, EnumSet.of(ChangeKind.ADDED));
+        changes.put(firstRobot, EnumSet.of(ChangeKind.STYLE));
+
+        final List<ComponentUpdate> updates = ComponentUpdate.of(new FactoryChangeEvent(factory, changes));
+
+        assertEquals(2, updates.size());
+        assertEquals(factory.getComponents().indexOf(firstRobot), updates.get(0).getIndex());
+        assertEquals(factory.getComponents().indexOf(thirdRobot), updates.get(1).getIndex());
+        assertEquals(thirdRobot.getxCoordinate(), updates.get(1).getxCoordinate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnorderedUpdatesRejected() {
+        ComponentUpdateCodec.encode(Arrays.asList(new ComponentUpdate(2, 0, 0, 0), new ComponentUpdate(1, 0, 0, 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedFrameRejected() {
+        final byte[] frame = ComponentUpdateCodec.encode(Arrays.asList(new ComponentUpdate(1, 300, 300, 1)));
+        ComponentUpdateCodec.decode(Arrays.copyOf(frame, frame.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTrailingBytesRejected() {
+        final byte[] frame = ComponentUpdateCodec.encode(Arrays.asList(new ComponentUpdate(1, 300, 300, 1)));
+        ComponentUpdateCodec.decode(Arrays.copyOf(frame, frame.length + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVersionRejected() {
+        final byte[] frame = ComponentUpdateCodec.encode(new ArrayList<>());
+        frame[0]++;
+        ComponentUpdateCodec.decode(frame);
+    }
+}
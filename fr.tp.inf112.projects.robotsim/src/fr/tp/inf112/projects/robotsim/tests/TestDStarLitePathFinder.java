@@ -0,0 +1,100 @@
+package fr.tp.inf112.projects.robotsim.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Area;
+import fr.tp.inf112.projects.robotsim.model.Battery;
+import fr.tp.inf112.projects.robotsim.model.Door;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryGenerator;
+import fr.tp.inf112.projects.robotsim.model.Machine;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.Room;
+import fr.tp.inf112.projects.robotsim.model.path.CustomDijkstraFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.DStarLiteFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.ImplicitGridFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.JGraphTDijkstraFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * Checks that the D* Lite path finder finds paths as short as the breadth first
+ * search of the implicit grid, including when it repairs its previous search
+ * after doors are closed or opened, and that the graphs of the Dijkstra path
+ * finders are patched correctly by these changes.
+ */
+public class TestDStarLitePathFinder {
+
+    private static final int RESOLUTION = 5;
+
+    private static int getExpectedLength(Factory factory, Robot robot, Machine machine) {
+        return TestGridPathFinders.getLength(new ImplicitGridFactoryPathFinder(factory, RESOLUTION).findPath(robot, machine));
+    }
+
+    @Test
+    public void testFindsShortestPaths() {
+        final FactoryGenerator generator = new FactoryGenerator(1);
+        generator.setDimensions(400, 400);
+        generator.setRoomCount(4);
+        generator.setMachineCount(8);
+        generator.setChargingStationCount(0);
+        generator.setRobotCount(4);
+        final Factory factory = generator.generate();
+        final FactoryPathFinder pathFinder = new DStarLiteFactoryPathFinder(factory, RESOLUTION);
+
+        for (Robot robot : factory.getRobots()) {
+            for (Machine machine : TestGridPathFinders.getMachines(factory)) {
+                assertEquals("Length of the path from " + robot.getName() + " to " + machine.getName(),
+                             getExpectedLength(factory, robot, machine),
+                             TestGridPathFinders.getLength(pathFinder.findPath(robot, machine)));
+            }
+        }
+    }
+
+    @Test
+    public void testRepairsPathsWhenDoorsChange() {
+        assertPathsFollowDoors(factory -> new DStarLiteFactoryPathFinder(factory, RESOLUTION));
+    }
+
+    @Test
+    public void testPatchesGraphsWhenDoorsChange() {
+        assertPathsFollowDoors(factory -> new JGraphTDijkstraFactoryPathFinder(factory, RESOLUTION));
+        assertPathsFollowDoors(factory -> new CustomDijkstraFactoryPathFinder(factory, RESOLUTION));
+    }
+
+    private static void assertPathsFollowDoors(Function<Factory, FactoryPathFinder> pathFinderFactory) {
+        final Factory factory = new Factory(200, 200, "Two Doors Factory");
+        final Room room = new Room(factory, new RectangularShape(50, 50, 100, 100), "Room");
+        final Door bottomDoor = new Door(room, Room.WALL.BOTTOM, 40, 20, true, "Bottom Door");
+        final Door topDoor = new Door(room, Room.WALL.TOP, 40, 20, true, "Top Door");
+        final Area area = new Area(room, new RectangularShape(80, 80, 40, 40), "Area");
+        final Machine machine = new Machine(area, new RectangularShape(90, 90, 15, 15), "Machine");
+        final Robot robot = new Robot(factory, null, new CircularShape(100, 180, 2), new Battery(10), "Robot");
+
+        // The same path finder is used for all the searches, so that it repairs its previous search or graph
+        final FactoryPathFinder pathFinder = pathFinderFactory.apply(factory);
+        final int bottomDoorLength = TestGridPathFinders.getLength(pathFinder.findPath(robot, machine));
+        assertEquals(getExpectedLength(factory, robot, machine), bottomDoorLength);
+
+        bottomDoor.close();
+        final int topDoorLength = TestGridPathFinders.getLength(pathFinder.findPath(robot, machine));
+        assertEquals(getExpectedLength(factory, robot, machine), topDoorLength);
+        assertTrue("Path through the top door not longer", topDoorLength > bottomDoorLength);
+
+        bottomDoor.open();
+        assertEquals(bottomDoorLength, TestGridPathFinders.getLength(pathFinder.findPath(robot, machine)));
+
+        bottomDoor.close();
+        topDoor.close();
+        final List<Position> path = pathFinder.findPath(robot, machine);
+        assertTrue("Path found into a closed room: " + path, path.isEmpty());
+    }
+}
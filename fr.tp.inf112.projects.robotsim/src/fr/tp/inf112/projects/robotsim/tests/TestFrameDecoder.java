@@ -0,0 +1,132 @@
+package fr.tp.inf112.projects.robotsim.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.tp.inf112.projects.robotsim.protocol.Frame;
+import fr.tp.inf112.projects.robotsim.protocol.FrameDecoder;
+import fr.tp.inf112.projects.robotsim.protocol.FrameType;
+
+/**
+ * Checks that the frames of a connection are rebuilt whatever the chunks their
+ * bytes are read in, and that frames of invalid lengths or types are rejected.
+ */
+public class TestFrameDecoder {
+
+    private static List<Frame> createFrames() {
+        final byte[] largePayload = new byte[20000];
+
+        for (int index = 0; index < largePayload.length; index++) {
+            largePayload[index] = (byte) index;
+        }
+
+        return Arrays.asList(new Frame(1, FrameType.LIST, new byte[0]),
+                             new Frame(2, FrameType.READ, "Simple Test Puck Factory"),
+                             new Frame(3, FrameType.MODEL, largePayload),
+                             new Frame(-4, FrameType.OK, "Factory model saved successfully."));
+    }
+
+    private static byte[] toBytes(List<Frame> frames) {
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        int length = 0;
+
+        for (Frame frame : frames) {
+            final ByteBuffer buffer = frame.toByteBuffer();
+            buffers.add(buffer);
+            length += buffer.remaining();
+        }
+
+        final ByteBuffer bytes = ByteBuffer.allocate(length);
+
+        for (ByteBuffer buffer : buffers) {
+            bytes.put(buffer);
+        }
+
+        return bytes.array();
+    }
+
+    private static List<Frame> decode(byte[] bytes, int chunkSize) throws IOException {
+        final FrameDecoder decoder = new FrameDecoder();
+        final List<Frame> frames = new ArrayList<>();
+
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            final ByteBuffer chunk = ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            frames.addAll(decoder.decode(chunk));
+            assertEquals("Bytes left in the chunk", 0, chunk.remaining());
+        }
+
+        return frames;
+    }
+
+    private static void assertFramesEqual(List<Frame> expectedFrames, List<Frame> frames) {
+        assertEquals(expectedFrames.size(), frames.size());
+
+        for (int index = 0; index < frames.size(); index++) {
+            assertEquals("Request identifier of frame " + index,
+                         expectedFrames.get(index).getRequestId(), frames.get(index).getRequestId());
+            assertEquals("Type of frame " + index, expectedFrames.get(index).getType(), frames.get(index).getType());
+            assertArrayEquals("Payload of frame " + index,
+                              expectedFrames.get(index).getPayload(), frames.get(index).getPayload());
+        }
+    }
+
+    @Test
+    public void testDecodeWholeFrames() throws IOException {
+        final List<Frame> frames = createFrames();
+        final byte[] bytes = toBytes(frames);
+        assertFramesEqual(frames, decode(bytes, bytes.length));
+    }
+
+    @Test
+    public void testDecodeSplitFrames() throws IOException {
+        final List<Frame> frames = createFrames();
+        final byte[] bytes = toBytes(frames);
+
+        // Chunks of one byte split the frames at every offset, the others inside lengths, headers and payloads
+        for (int chunkSize : new int[] { 1, 2, 3, 5, 7, 64, 4096, 16 * 1024 }) {
+            assertFramesEqual(frames, decode(bytes, chunkSize));
+        }
+    }
+
+    @Test
+    public void testHeaderAndPayloadMatchFrame() throws IOException {
+        final byte[] payload = "{\"id\":\"factory\"}".getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer header = Frame.header(5, FrameType.MODEL, payload.length);
+        final byte[] bytes = new byte[header.remaining() + payload.length];
+        header.get(bytes, 0, header.remaining());
+        System.arraycopy(payload, 0, bytes, bytes.length - payload.length, payload.length);
+
+        assertFramesEqual(Arrays.asList(new Frame(5, FrameType.MODEL, payload)), decode(bytes, 3));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLengthAboveMaximumRejected() throws IOException {
+        final ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES).putInt(Frame.HEADER_LENGTH + Frame.MAX_PAYLOAD_LENGTH + 1);
+        bytes.flip();
+        new FrameDecoder().decode(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLengthBelowHeaderRejected() throws IOException {
+        final ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES).putInt(Frame.HEADER_LENGTH - 1);
+        bytes.flip();
+        new FrameDecoder().decode(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownTypeRejected() throws IOException {
+        final ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES + Frame.HEADER_LENGTH)
+                .putInt(Frame.HEADER_LENGTH).putInt(1).put((byte) -1);
+        bytes.flip();
+        new FrameDecoder().decode(bytes);
+    }
+}
@@ -0,0 +1,120 @@
+package fr.tp.inf112.projects.robotsim.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryGenerator;
+import fr.tp.inf112.projects.robotsim.model.Machine;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+import fr.tp.inf112.projects.robotsim.model.path.AStarFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.ImplicitGridFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.JumpPointSearchFactoryPathFinder;
+
+/**
+ * Checks that the A* and Jump Point Search path finders find paths as short as
+ * the breadth first search of the implicit grid, between the robots and the
+ * machines of generated factories.
+ */
+public class TestGridPathFinders {
+
+    private static final int RESOLUTION = 5;
+
+    private static Factory createFactoryModel(long seed) {
+        final FactoryGenerator generator = new FactoryGenerator(seed);
+        generator.setDimensions(400, 400);
+        generator.setRoomCount(4);
+        generator.setMachineCount(8);
+        generator.setChargingStationCount(0);
+        generator.setRobotCount(4);
+        return generator.generate();
+    }
+
+    static List<Machine> getMachines(Factory factory) {
+        final List<Machine> machines = new ArrayList<>();
+
+        for (Component component : factory.getComponents()) {
+            if (component instanceof Machine) {
+                machines.add((Machine) component);
+            }
+        }
+
+        return machines;
+    }
+
+    static int getLength(List<Position> path) {
+        int length = 0;
+
+        for (int index = 1; index < path.size(); index++) {
+            length += Motion.distance(path.get(index - 1), path.get(index));
+        }
+
+        return length;
+    }
+
+    private static void assertShortestPaths(Factory factory, FactoryPathFinder pathFinder) {
+        final FactoryPathFinder referencePathFinder = new ImplicitGridFactoryPathFinder(factory, RESOLUTION);
+        int pathCount = 0;
+
+        for (Robot robot : factory.getRobots()) {
+            for (Machine machine : getMachines(factory)) {
+                final List<Position> expectedPath = referencePathFinder.findPath(robot, machine);
+                final List<Position> path = pathFinder.findPath(robot, machine);
+                final String pair = robot.getName() + " to " + machine.getName();
+
+                assertEquals("Path found from " + pair, expectedPath.isEmpty(), path.isEmpty());
+
+                if (!path.isEmpty()) {
+                    assertEquals("Length of the path from " + pair, getLength(expectedPath), getLength(path));
+                    assertEquals("Last position of the path from " + pair,
+                                 expectedPath.get(expectedPath.size() - 1), path.get(path.size() - 1));
+                    pathCount++;
+                }
+            }
+        }
+
+        assertTrue("No path found", pathCount > 0);
+    }
+
+    @Test
+    public void testAStarFindsShortestPaths() {
+        for (long seed = 1; seed <= 3; seed++) {
+            final Factory factory = createFactoryModel(seed);
+            assertShortestPaths(factory, new AStarFactoryPathFinder(factory, RESOLUTION));
+        }
+    }
+
+    @Test
+    public void testJumpPointSearchFindsShortestPaths() {
+        for (long seed = 1; seed <= 3; seed++) {
+            final Factory factory = createFactoryModel(seed);
+            assertShortestPaths(factory, new JumpPointSearchFactoryPathFinder(factory, RESOLUTION));
+        }
+    }
+
+    @Test
+    public void testJumpPointSearchPathsMoveOneCellAtATime() {
+        final Factory factory = createFactoryModel(1);
+        final FactoryPathFinder pathFinder = new JumpPointSearchFactoryPathFinder(factory, RESOLUTION);
+
+        for (Robot robot : factory.getRobots()) {
+            for (Machine machine : getMachines(factory)) {
+                final List<Position> path = pathFinder.findPath(robot, machine);
+
+                for (int index = 1; index < path.size(); index++) {
+                    assertEquals("Step " + index + " of the path of " + robot.getName(),
+                                 RESOLUTION, Motion.distance(path.get(index - 1), path.get(index)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package fr.tp.inf112.projects.robotsim.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+import fr.tp.inf112.projects.robotsim.server.SegmentFactoryModelStore;
+import fr.tp.inf112.projects.robotsim.server.SegmentFactoryModelStore.FsyncPolicy;
+
+/**
+ * Checks that the segment store recovers the saved models when reopened,
+ * including documents saved as received, dropping a record which was not
+ * completely written, and that compacted or deleted models do not come back,
+ * even if their segments could not be deleted.
+ */
+public class TestSegmentFactoryModelStore {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    // Long enough for the maintenance not to compact the segments during the tests
+    private static final long MAINTENANCE_PERIOD = 3600 * 1000;
+
+    private File directory;
+
+    private SegmentFactoryModelStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segments").toFile();
+        store = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private SegmentFactoryModelStore open() throws IOException {
+        return new SegmentFactoryModelStore(directory, SEGMENT_SIZE, FsyncPolicy.ALWAYS, MAINTENANCE_PERIOD);
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = open();
+    }
+
+    private void save(String id, String name) throws IOException {
+        final Factory factory = new Factory(200, 200, name);
+        factory.setId(id);
+        store.save(factory);
+    }
+
+    private String readName(String id) throws IOException {
+        final byte[] model = store.read(id);
+        return model == null ? null : FactoryJson.getTypedReader().<Factory>readValue(model).getName();
+    }
+
+    private File[] getSegmentFiles() {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(".log"));
+        Arrays.sort(files);
+        return files;
+    }
+
+    // Stands for a record whose write was interrupted, its length being written but not all of its data
+    private static void tearRecord(File segmentFile, String modelName) throws IOException {
+        final byte[] bytes = Files.readAllBytes(segmentFile.toPath());
+        final byte[] name = modelName.getBytes(StandardCharsets.UTF_8);
+        int offset = -1;
+
+        for (int index = bytes.length - name.length; index >= 0 && offset < 0; index--) {
+            if (Arrays.equals(bytes, index, index + name.length, name, 0, name.length)) {
+                offset = index;
+            }
+        }
+
+        assertTrue("Model not found in segment: " + modelName, offset >= 0);
+        Arrays.fill(bytes, offset, offset + name.length, (byte) 0);
+        Files.write(segmentFile.toPath(), bytes);
+    }
+
+    @Test
+    public void testRecoverSavedModels() throws IOException {
+        save("first", "First Factory");
+        save("second", "Second Factory");
+        save("first", "First Factory Version 2");
+        reopen();
+
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), new HashSet<>(store.list()));
+        assertEquals("First Factory Version 2", readName("first"));
+        assertEquals("Second Factory", readName("second"));
+    }
+
+    @Test
+    public void testSaveReceivedDocument() throws IOException {
+        final Factory factory = new Factory(200, 200, "Received Factory");
+        factory.setId("received");
+        final byte[] document = FactoryJson.getTypedWriter().writeValueAsBytes(factory);
+        store.save(FactoryJson.readId(document), document);
+        reopen();
+
+        assertArrayEquals(document, store.read("received"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDocumentWithoutIdentifierRejected() throws IOException {
+        FactoryJson.readId(FactoryJson.getTypedWriter().writeValueAsBytes(new Factory(200, 200, "Anonymous Factory")));
+    }
+
+    @Test
+    public void testRecoverFromHalfWrittenRecord() throws IOException {
+        save("first", "First Factory");
+        save("second", "Second Factory");
+        store.close();
+        tearRecord(getSegmentFiles()[0], "Second Factory");
+        store = open();
+
+        assertEquals(Arrays.asList("first"), store.list());
+        assertEquals("First Factory", readName("first"));
+
+        // The next record replaces the torn one
+        save("third", "Third Factory");
+        reopen();
+
+        assertEquals(new HashSet<>(Arrays.asList("first", "third")), new HashSet<>(store.list()));
+        assertEquals("Third Factory", readName("third"));
+    }
+
+    @Test
+    public void testCompactKeepsLastVersions() throws IOException {
+        // Fills several segments with versions of the same models
+        for (int version = 0; version < 100; version++) {
+            save("first", "First Factory Version " + version);
+            save("second", "Second Factory Version " + version);
+        }
+
+        assertTrue("Versions saved in a single segment", getSegmentFiles().length > 1);
+        store.compact();
+
+        assertEquals(1, getSegmentFiles().length);
+        assertEquals("First Factory Version 99", readName("first"));
+        reopen();
+
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), new HashSet<>(store.list()));
+        assertEquals("First Factory Version 99", readName("first"));
+        assertEquals("Second Factory Version 99", readName("second"));
+    }
+
+    @Test
+    public void testCompactedSegmentsNotRecovered() throws IOException {
+        save("first", "First Factory");
+        save("first", "First Factory Version 2");
+        save("second", "Second Factory");
+
+        // Keeps the compacted segment, like a file still mapped which cannot be deleted
+        final File oldSegmentFile = getSegmentFiles()[0];
+        final File oldSegmentCopy = new File(directory, "old-segment");
+        Files.createLink(oldSegmentCopy.toPath(), oldSegmentFile.toPath());
+        store.compact();
+        store.close();
+        Files.move(oldSegmentCopy.toPath(), oldSegmentFile.toPath());
+        store = open();
+
+        assertEquals(new HashSet<>(Arrays.asList("first", "second")), new HashSet<>(store.list()));
+        assertEquals("First Factory Version 2", readName("first"));
+        assertEquals(1, getSegmentFiles().length);
+    }
+
+    @Test
+    public void testDeletedModelsNotRecovered() throws IOException {
+        save("first", "First Factory");
+        save("second", "Second Factory");
+
+        final File segmentFile = getSegmentFiles()[0];
+        final File segmentCopy = new File(directory, "deleted-segment");
+        Files.createLink(segmentCopy.toPath(), segmentFile.toPath());
+        store.deleteAll();
+        store.close();
+        Files.move(segmentCopy.toPath(), segmentFile.toPath());
+        store = open();
+
+        final List<String> ids = store.list();
+        assertTrue("Deleted models recovered: " + ids, ids.isEmpty());
+        assertNull(store.read("first"));
+
+        // The cleared segment must not be appended to, as its other records are still there
+        save("third", "Third Factory");
+        reopen();
+
+        assertEquals(Arrays.asList("third"), store.list());
+    }
+}
@@ -4,11 +4,14 @@ package com.example.simulation.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdateCodec;
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+import fr.tp.inf112.projects.robotsim.model.simulation.ExecutorSimulationEngine;
 
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -25,6 +28,10 @@ public class SimulationController {
     private final ConcurrentMap<String, Factory> simulatedModels = new ConcurrentHashMap<>();
     private final HttpClient httpClient = HttpClient.newHttpClient();
     private static final String PERSISTENCE_SERVER_URL = "http://localhost:50001";
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String UPDATE_EVENT = "update";
+    static final String DELTA_EVENT = "delta";
+    static final String BINARY_ENCODING = "binary";
 
     @PostMapping("/start/{id}")
     public boolean startSimulation(@PathVariable String id) {
@@ -36,8 +43,10 @@ public class SimulationController {
                 return false;
             }
 
-            // Add to simulated models and start simulation
+            // Add to simulated models and start simulation, without dedicating platform threads to its components
             simulatedModels.put(id, factory);
+            factory.initialize(); // Observers of the stream are only notified by initialized factories
+            factory.setSimulationEngine(new ExecutorSimulationEngine());
             factory.startSimulation(); // Assuming Factory has a `startSimulation` method
             logger.info("Started simulation for factory model with ID {}", id);
             return true;
@@ -52,6 +61,46 @@ public class SimulationController {
         return simulatedModels.get(id);
     }
 
+    /**
+     * Streams the simulated model as server-sent events: a snapshot of the whole
+     * factory on subscription, then an update event listing the moved or
+     * restyled components each time the factory observers are notified. A new
+     * snapshot is sent when components are added or removed, and the stream
+     * is completed when the simulation stops. With the binary encoding, the
+     * updates are sent as delta events holding a base 64 frame of the
+     * {@link ComponentUpdateCodec} rather than as JSON. The events are queued
+     * and sent by the {@link SimulationStream} of each subscriber.
+     */
+    @GetMapping(path = "/stream/{id}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSimulatedModel(@PathVariable String id,
+                                           @RequestParam(name = "encoding", defaultValue = "json") String encoding) {
+        boolean binary = BINARY_ENCODING.equals(encoding);
+        SseEmitter emitter = new SseEmitter(0L); // No timeout, the stream lasts as long as the simulation
+        Factory factory = simulatedModels.get(id);
+        if (factory == null || !factory.isSimulationStarted()) {
+            logger.warn("Factory model with ID {} is not simulated", id);
+            emitter.complete();
+            return emitter;
+        }
+
+        // Events are serialized and sent by the thread of the stream, not by the one notifying the observers
+        SimulationStream stream = new SimulationStream(emitter, factory, binary);
+
+        // Observed before the snapshot is requested so that no change is missed, clients ignoring updates received before it
+        factory.addObserver(stream);
+        emitter.onCompletion(() -> close(factory, stream));
+        emitter.onTimeout(() -> close(factory, stream));
+        emitter.onError(ex -> close(factory, stream));
+        stream.requestSnapshot();
+        logger.info("Streaming simulation of factory model with ID {}", id);
+        return emitter;
+    }
+
+    private void close(Factory factory, SimulationStream stream) {
+        factory.removeObserver(stream);
+        stream.close();
+    }
+
     @DeleteMapping("/stop/{id}")
     public boolean stopSimulation(@PathVariable String id) {
         try {
@@ -75,7 +124,7 @@ public class SimulationController {
             HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() == 200) {
-                return new ObjectMapper().readValue(response.body(), Factory.class);
+                return FactoryJson.getTypedReader().readValue(response.body());
             } else {
                 logger.error("Failed to fetch factory model: HTTP {}", response.statusCode());
                 return null;
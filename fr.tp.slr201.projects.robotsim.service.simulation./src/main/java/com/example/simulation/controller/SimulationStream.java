@@ -0,0 +1,171 @@
+package com.example.simulation.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import fr.tp.inf112.projects.robotsim.model.ChangeKind;
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdate;
+import fr.tp.inf112.projects.robotsim.model.ComponentUpdateCodec;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryChangeEvent;
+import fr.tp.inf112.projects.robotsim.model.FactoryChangeObserver;
+import fr.tp.inf112.projects.robotsim.model.FactoryJson;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stream of the server-sent events of one subscriber to a simulated factory.
+ * The factory observers are notified on the thread shared by all subscribers,
+ * so the notifications only queue the updates of the subscriber, which are
+ * serialized and sent by a thread of its own. When a slow subscriber lets its
+ * queue fill up, the queued updates are dropped and a snapshot of the whole
+ * factory is sent instead.
+ */
+class SimulationStream implements FactoryChangeObserver {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulationStream.class);
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    // Threads are only kept while streams have events to send
+    private static final ExecutorService SENDERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Simulation stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SseEmitter emitter;
+    private final Factory factory;
+    private final boolean binary;
+    private final BlockingQueue<List<ComponentUpdate>> updates = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean();
+    private final AtomicBoolean completionRequested = new AtomicBoolean();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private volatile boolean closed;
+
+    SimulationStream(SseEmitter emitter, Factory factory, boolean binary) {
+        this.emitter = emitter;
+        this.factory = factory;
+        this.binary = binary;
+    }
+
+    @Override
+    public void modelChanged() {
+        requestSnapshot();
+    }
+
+    @Override
+    public void factoryChanged(FactoryChangeEvent event) {
+        if (!factory.isSimulationStarted()) {
+            completionRequested.set(true);
+            scheduleSending();
+        } else if (!event.getChangedComponents(ChangeKind.ADDED).isEmpty() ||
+                   !event.getChangedComponents(ChangeKind.REMOVED).isEmpty()) {
+            requestSnapshot();
+        } else {
+            List<ComponentUpdate> componentUpdates = ComponentUpdate.of(event);
+            if (componentUpdates.isEmpty()) {
+                return;
+            }
+            if (updates.offer(componentUpdates)) {
+                scheduleSending();
+            } else {
+                // The subscriber does not keep up, a snapshot replaces its queued updates
+                requestSnapshot();
+            }
+        }
+    }
+
+    /**
+     * Sends a snapshot of the whole factory, replacing the updates queued so far.
+     */
+    void requestSnapshot() {
+        snapshotRequested.set(true);
+        updates.clear();
+        scheduleSending();
+    }
+
+    /**
+     * Stops sending the events, once the emitter is completed.
+     */
+    void close() {
+        closed = true;
+        updates.clear();
+    }
+
+    private boolean hasPendingEvents() {
+        return snapshotRequested.get() || completionRequested.get() || !updates.isEmpty();
+    }
+
+    private void scheduleSending() {
+        if (!closed && sending.compareAndSet(false, true)) {
+            SENDERS.execute(this::sendPendingEvents);
+        }
+    }
+
+    // Runs on one sender thread at a time, until no event is left to send
+    private void sendPendingEvents() {
+        do {
+            while (!closed && hasPendingEvents()) {
+                if (snapshotRequested.getAndSet(false)) {
+                    updates.clear();
+                    sendSnapshot();
+                } else if (completionRequested.get() && updates.isEmpty()) {
+                    closed = true;
+                    emitter.complete();
+                } else {
+                    List<ComponentUpdate> componentUpdates = updates.poll();
+                    if (componentUpdates != null) {
+                        sendUpdates(componentUpdates);
+                    }
+                }
+            }
+
+            sending.set(false);
+            // Events queued after the last check but before the flag was reset are sent by this thread
+        } while (!closed && hasPendingEvents() && sending.compareAndSet(false, true));
+    }
+
+    // Written with the type information the remote viewers need to rebuild the model
+    private void sendSnapshot() {
+        try {
+            String snapshot = FactoryJson.getTypedWriter().writeValueAsString(factory);
+            send(SseEmitter.event().name(SimulationController.SNAPSHOT_EVENT).data(snapshot, MediaType.APPLICATION_JSON));
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize simulated factory model", e);
+            closed = true;
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void sendUpdates(List<ComponentUpdate> componentUpdates) {
+        if (binary) {
+            String frame = Base64.getEncoder().encodeToString(ComponentUpdateCodec.encode(componentUpdates));
+            send(SseEmitter.event().name(SimulationController.DELTA_EVENT).data(frame, MediaType.TEXT_PLAIN));
+        } else {
+            send(SseEmitter.event().name(SimulationController.UPDATE_EVENT).data(componentUpdates, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream was completed
+            logger.debug("Failed to send simulation event", e);
+            closed = true;
+            emitter.completeWithError(e);
+        }
+    }
+}